@@ -0,0 +1,30 @@
+package pong.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jars.
+ * Accepts the usual JMH command line and always adds the GC profiler, so the
+ * allocation rate is reported next to the throughput of every benchmark.
+ * Forked JVMs run with {@code java.awt.headless=true}.
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.jvmArgsAppend("-Djava.awt.headless=true")
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,155 @@
+package pong.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import sun.misc.Unsafe;
+
+/**
+ * Reflective access to the game classes.
+ * The game lives in the default package, which JMH benchmarks cannot
+ * import, so benchmarks reach its classes by name. Method handles returned
+ * here are adapted to take and return {@code Object} and are meant to be
+ * stored in {@code static final} fields and called with {@code invokeExact},
+ * which the JIT inlines like a direct call.
+ */
+public final class GameAccess {
+
+	private GameAccess() {
+	}
+
+	/**
+	 * Creates an instance through a possibly non-public constructor.
+	 *
+	 * @param className  Name of the game class
+	 * @param paramTypes Constructor parameter types
+	 * @param args       Constructor arguments
+	 * @return The new instance
+	 */
+	public static Object construct(String className, Class<?>[] paramTypes, Object... args) {
+		try {
+			Constructor<?> constructor = gameClass(className).getDeclaredConstructor(paramTypes);
+			constructor.setAccessible(true);
+			return constructor.newInstance(args);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot construct " + className, e);
+		}
+	}
+
+	/**
+	 * Looks up a possibly private instance method.
+	 *
+	 * @param className  Name of the game class
+	 * @param name       Method name
+	 * @param paramTypes Method parameter types
+	 * @return A handle whose receiver is typed {@code Object}, with the
+	 *         declared parameter types, returning {@code Object} for
+	 *         reference return types
+	 */
+	public static MethodHandle method(String className, String name, Class<?>... paramTypes) {
+		try {
+			Method method = gameClass(className).getDeclaredMethod(name, paramTypes);
+			method.setAccessible(true);
+			MethodHandle handle = MethodHandles.lookup().unreflect(method);
+			return handle.asType(handle.type()
+					.changeParameterType(0, Object.class)
+					.changeReturnType(returnType(method)));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot find " + className + "." + name, e);
+		}
+	}
+
+	/**
+	 * Creates an instance without running any constructor, for classes whose
+	 * constructor has side effects such as starting a thread.
+	 *
+	 * @param className Name of the game class
+	 * @return The uninitialized instance
+	 */
+	public static Object allocate(String className) {
+		try {
+			Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			return ((Unsafe) theUnsafe.get(null)).allocateInstance(gameClass(className));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot allocate " + className, e);
+		}
+	}
+
+	/**
+	 * Reads a possibly private field.
+	 */
+	public static Object get(Object target, String name) {
+		try {
+			return field(target.getClass(), name).get(target);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot read " + name, e);
+		}
+	}
+
+	/**
+	 * Writes a possibly private, possibly final instance field.
+	 */
+	public static void set(Object target, String name, Object value) {
+		try {
+			field(target.getClass(), name).set(target, value);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot write " + name, e);
+		}
+	}
+
+	/**
+	 * Reads a possibly private static int constant.
+	 */
+	public static int constant(String className, String name) {
+		try {
+			return field(gameClass(className), name).getInt(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot read " + className + "." + name, e);
+		}
+	}
+
+	/**
+	 * Looks up a constant of a game enum.
+	 */
+	public static Object enumConstant(String className, String name) {
+		for (Object constant : gameClass(className).getEnumConstants()) {
+			if (((Enum<?>) constant).name().equals(name)) {
+				return constant;
+			}
+		}
+		throw new IllegalStateException("No constant " + className + "." + name);
+	}
+
+	/**
+	 * Loads a game class by name.
+	 */
+	public static Class<?> gameClass(String className) {
+		try {
+			return Class.forName(className);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Game class not on the classpath: " + className, e);
+		}
+	}
+
+	private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			try {
+				Field field = c.getDeclaredField(name);
+				field.setAccessible(true);
+				return field;
+			} catch (NoSuchFieldException e) {
+				// keep looking in the superclass
+			}
+		}
+		throw new NoSuchFieldException(name);
+	}
+
+	// Primitive return types are kept so callers can invokeExact without boxing
+	private static Class<?> returnType(Method method) {
+		Class<?> type = method.getReturnType();
+		return type.isPrimitive() ? type : Object.class;
+	}
+}
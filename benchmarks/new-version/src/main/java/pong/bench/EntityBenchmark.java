@@ -0,0 +1,64 @@
+package pong.bench;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Drawing of each game entity on its own into an offscreen image.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityBenchmark {
+
+	private static final MethodHandle BALL_DRAW = GameAccess.method("Ball", "draw", Graphics.class);
+	private static final MethodHandle PADDLE_DRAW = GameAccess.method("Paddle", "draw", Graphics.class);
+	private static final MethodHandle SCORE_DRAW = GameAccess.method("Score", "draw", Graphics.class);
+
+	private Object ball;
+	private Object paddle;
+	private Object score;
+	private BufferedImage image;
+	private Graphics graphics;
+
+	@Setup
+	public void setup() {
+		Class<?>[] rectangle = { int.class, int.class, int.class, int.class };
+		Class<?>[] paddleArgs = { int.class, int.class, int.class, int.class, int.class };
+		ball = GameAccess.construct("Ball", rectangle, 490, 267, 20, 20);
+		paddle = GameAccess.construct("Paddle", paddleArgs, 0, 227, 25, 100, 1);
+		score = GameAccess.construct("Score", new Class<?>[] { int.class, int.class }, 1000, 555);
+
+		image = new BufferedImage(1000, 555, BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage ballDraw() throws Throwable {
+		BALL_DRAW.invokeExact(ball, graphics);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage paddleDraw() throws Throwable {
+		PADDLE_DRAW.invokeExact(paddle, graphics);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage scoreDraw() throws Throwable {
+		SCORE_DRAW.invokeExact(score, graphics);
+		return image;
+	}
+}
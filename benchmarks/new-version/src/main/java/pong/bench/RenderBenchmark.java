@@ -0,0 +1,63 @@
+package pong.bench;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Full-frame rendering of the current game into an offscreen image with
+ * {@code GamePanel.draw()}: the in-game screen, and the animated menu
+ * including the tick that moves its stars.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+	private static final MethodHandle DRAW = GameAccess.method("GamePanel", "draw", Graphics.class);
+	private static final MethodHandle TICK = GameAccess.method("GamePanel", "tick");
+
+	private Object playingPanel;
+	private Object menuPanel;
+	private BufferedImage image;
+	private Graphics2D graphics;
+
+	@Setup
+	public void setup() {
+		int width = GameAccess.constant("GamePanel", "GAME_WIDTH");
+		int height = GameAccess.constant("GamePanel", "GAME_HEIGHT");
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+
+		playingPanel = GameAccess.construct("GamePanel", new Class<?>[0]);
+		GameAccess.set(playingPanel, "state", GameAccess.enumConstant("GameState", "PLAYING"));
+		menuPanel = GameAccess.construct("GamePanel", new Class<?>[0]);
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage drawPlaying() throws Throwable {
+		DRAW.invokeExact(playingPanel, (Graphics) graphics);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage drawStartScreen() throws Throwable {
+		// The menu turns antialiasing on, so reset it for the next frame like a fresh back buffer
+		TICK.invokeExact(menuPanel);
+		DRAW.invokeExact(menuPanel, (Graphics) graphics);
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_DEFAULT);
+		return image;
+	}
+}
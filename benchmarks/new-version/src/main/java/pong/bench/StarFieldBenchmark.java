@@ -0,0 +1,90 @@
+package pong.bench;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One frame of the menu star field: update plus draw into an offscreen
+ * image, for the array-based {@code StarField} at several sizes and for the
+ * one-object-per-star loop it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StarFieldBenchmark {
+
+	private static final int WIDTH = 1000;
+	private static final int HEIGHT = 555;
+	private static final MethodHandle UPDATE = GameAccess.method("StarField", "update");
+	private static final MethodHandle DRAW = GameAccess.method("StarField", "draw", Graphics.class);
+
+	@Param({ "100", "50000" })
+	public int stars;
+
+	private Object starField;
+	private BufferedImage image;
+	private Graphics2D graphics;
+
+	private final Random random = new Random(1);
+	private float[] objectStarX;
+	private float[] objectStarY;
+	private float[] objectStarSpeed;
+
+	@Setup
+	public void setup() {
+		starField = GameAccess.construct("StarField",
+				new Class<?>[] { int.class, int.class, int.class, Random.class },
+				WIDTH, HEIGHT, stars, new Random(1));
+		image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+
+		objectStarX = new float[stars];
+		objectStarY = new float[stars];
+		objectStarSpeed = new float[stars];
+		for (int i = 0; i < stars; i++) {
+			objectStarX[i] = random.nextFloat() * WIDTH;
+			objectStarY[i] = random.nextFloat() * HEIGHT;
+			objectStarSpeed[i] = random.nextFloat() * 2 + 1;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage starField() throws Throwable {
+		UPDATE.invokeExact(starField);
+		DRAW.invokeExact(starField, (Graphics) graphics);
+		return image;
+	}
+
+	// The replaced per-star loop: a clock read, Math.sin, a Color and a fillRect per star
+	@Benchmark
+	public BufferedImage objectStars() {
+		graphics.setColor(Color.BLACK);
+		graphics.fillRect(0, 0, WIDTH, HEIGHT);
+		for (int i = 0; i < stars; i++) {
+			objectStarX[i] -= objectStarSpeed[i];
+			if (objectStarX[i] < 0) {
+				objectStarX[i] = WIDTH;
+				objectStarY[i] = random.nextFloat() * HEIGHT;
+			}
+			float brightness = (float) (0.3
+					+ (0.7 * Math.abs(Math.sin(System.currentTimeMillis() * 0.003 * objectStarSpeed[i]))));
+			graphics.setColor(new Color(1f, 1f, 1f, Math.max(0.0f, Math.min(1.0f, brightness))));
+			graphics.fillRect((int) objectStarX[i], (int) objectStarY[i], 2, 2);
+		}
+		return image;
+	}
+}
@@ -0,0 +1,44 @@
+package pong.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One simulation tick of the current game: paddle and ball movement plus
+ * collision, scoring and game-over checks, as done by
+ * {@code PongSimulation.step()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TickBenchmark {
+
+	private static final MethodHandle STEP = GameAccess.method("PongSimulation", "step", int.class, int.class);
+	private static final MethodHandle RESET = GameAccess.method("PongSimulation", "reset");
+	private static final int EVENT_GAME_OVER = GameAccess.constant("PongSimulation", "EVENT_GAME_OVER");
+
+	private Object simulation;
+	private int tick;
+
+	@Setup
+	public void setup() {
+		simulation = GameAccess.construct("PongSimulation", new Class<?>[0]);
+	}
+
+	@Benchmark
+	public int step() throws Throwable {
+		// Sweep both paddles up and down so hits, misses and clamps all occur
+		tick++;
+		int input1 = ((tick >> 5) & 1) == 0 ? -1 : 1;
+		int input2 = ((tick >> 6) & 1) == 0 ? 1 : -1;
+		int events = (int) STEP.invokeExact(simulation, input1, input2);
+		if ((events & EVENT_GAME_OVER) != 0) {
+			RESET.invokeExact(simulation);
+		}
+		return events;
+	}
+}
@@ -0,0 +1,29 @@
+package pong.bench;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Builds a legacy {@code GamePanel} for benchmarking.
+ * The legacy constructor starts a busy-spinning game thread that would
+ * mutate the same objects, so the panel is allocated without it and its
+ * entities are created the way the constructor would.
+ */
+final class LegacyGame {
+
+	private static final MethodHandle NEW_PADDLES = GameAccess.method("GamePanel", "newPaddles");
+	private static final MethodHandle NEW_BALL = GameAccess.method("GamePanel", "newBall");
+
+	private LegacyGame() {
+	}
+
+	static Object newPanel() throws Throwable {
+		Object panel = GameAccess.allocate("GamePanel");
+		NEW_PADDLES.invokeExact(panel);
+		NEW_BALL.invokeExact(panel);
+		int width = GameAccess.constant("GamePanel", "GAME_WIDTH");
+		int height = GameAccess.constant("GamePanel", "GAME_HEIGHT");
+		GameAccess.set(panel, "score",
+				GameAccess.construct("Score", new Class<?>[] { int.class, int.class }, width, height));
+		return panel;
+	}
+}
@@ -0,0 +1,46 @@
+package pong.bench;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Full-frame rendering of the legacy game into an offscreen image with
+ * {@code GamePanel.draw()}. The legacy game has no start screen.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+	private static final MethodHandle DRAW = GameAccess.method("GamePanel", "draw", Graphics.class);
+
+	private Object panel;
+	private BufferedImage image;
+	private Graphics graphics;
+
+	@Setup
+	public void setup() throws Throwable {
+		panel = LegacyGame.newPanel();
+		int width = GameAccess.constant("GamePanel", "GAME_WIDTH");
+		int height = GameAccess.constant("GamePanel", "GAME_HEIGHT");
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+	}
+
+	@TearDown
+	public void tearDown() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage drawPlaying() throws Throwable {
+		DRAW.invokeExact(panel, graphics);
+		return image;
+	}
+}
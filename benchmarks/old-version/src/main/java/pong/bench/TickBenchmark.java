@@ -0,0 +1,35 @@
+package pong.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One tick of the legacy game: {@code GamePanel.move()} followed by
+ * {@code GamePanel.checkCollision()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TickBenchmark {
+
+	private static final MethodHandle MOVE = GameAccess.method("GamePanel", "move");
+	private static final MethodHandle CHECK_COLLISION = GameAccess.method("GamePanel", "checkCollision");
+
+	private Object panel;
+
+	@Setup
+	public void setup() throws Throwable {
+		panel = LegacyGame.newPanel();
+	}
+
+	@Benchmark
+	public Object tick() throws Throwable {
+		MOVE.invokeExact(panel);
+		CHECK_COLLISION.invokeExact(panel);
+		return panel;
+	}
+}
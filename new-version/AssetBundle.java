@@ -0,0 +1,197 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of the asset bundle written by {@link AssetPacker}.
+ * The bundle file is memory-mapped, so opening it reads only the index and
+ * each asset is paged in when it is decoded. Inside a jar, where a resource
+ * cannot be mapped, the bundle is read into memory once instead.
+ *
+ * Assets that are not in the bundle, or all of them if there is no bundle,
+ * are read from the class path as before.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * int MAGIC, int VERSION, int count
+ * count * (UTF name, byte type, int offset, int length)
+ * asset data, at the offsets given in the index
+ * </pre>
+ */
+public final class AssetBundle {
+
+	public static final int MAGIC = 0x50414B42; // "PAKB"
+	public static final int VERSION = 1;
+	public static final byte TYPE_SOUND = 1;
+	public static final byte TYPE_SPRITES = 2;
+	public static final String DEFAULT_FILE = "pong.assets";
+
+	// Opened on first use by whichever loader thread gets there first
+	private static final class Holder {
+		static final AssetBundle INSTANCE = openDefault();
+	}
+
+	private final ByteBuffer data;
+	private final Map<String, Entry> entries;
+
+	private record Entry(byte type, int offset, int length) {
+	}
+
+	private AssetBundle(ByteBuffer data) throws IOException {
+		this.data = data;
+		DataInputStream in = new DataInputStream(new BufferInputStream(data.duplicate()));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not an asset bundle");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported asset bundle version " + version);
+		}
+		int count = in.readInt();
+		entries = new HashMap<>(count * 2);
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			byte type = in.readByte();
+			int offset = in.readInt();
+			int length = in.readInt();
+			if (offset < 0 || length < 0 || offset + length > data.limit()) {
+				throw new IOException("Asset " + name + " lies outside the bundle");
+			}
+			entries.put(name, new Entry(type, offset, length));
+		}
+	}
+
+	/**
+	 * Maps a bundle file.
+	 */
+	public static AssetBundle open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new AssetBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @return The game's bundle, or null if there is none
+	 */
+	public static AssetBundle get() {
+		return Holder.INSTANCE;
+	}
+
+	// The file named by -Dpong.assets, else pong.assets in the working directory or on the class path
+	private static AssetBundle openDefault() {
+		Path file = Paths.get(System.getProperty("pong.assets", DEFAULT_FILE));
+		try {
+			if (Files.isRegularFile(file)) {
+				return open(file);
+			}
+			try (InputStream in = AssetBundle.class.getClassLoader().getResourceAsStream(DEFAULT_FILE)) {
+				if (in != null) {
+					return new AssetBundle(ByteBuffer.wrap(in.readAllBytes()));
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Ignoring asset bundle: " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Opens an asset from the bundle if it holds it, else from the class path.
+	 *
+	 * @param name Resource name, e.g. {@code sound_files/ball_hit.wav}
+	 * @return A stream supporting mark and reset, or null if the asset does
+	 *         not exist
+	 */
+	public static InputStream openResource(String name) {
+		AssetBundle bundle = get();
+		if (bundle != null) {
+			ByteBuffer asset = bundle.find(name);
+			if (asset != null) {
+				return new BufferInputStream(asset);
+			}
+		}
+		InputStream in = AssetBundle.class.getClassLoader().getResourceAsStream(name);
+		// AudioSystem needs mark and reset to detect the file type
+		return in == null ? null : new BufferedInputStream(in);
+	}
+
+	/**
+	 * @return The bytes of an asset, positioned at its start, or null
+	 */
+	public ByteBuffer find(String name) {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return null;
+		}
+		// Each caller gets its own position, so assets can be decoded in parallel
+		return data.duplicate().position(entry.offset()).limit(entry.offset() + entry.length()).slice();
+	}
+
+	/**
+	 * @return True if the asset is in the bundle and has the given type
+	 */
+	public boolean contains(String name, byte type) {
+		Entry entry = entries.get(name);
+		return entry != null && entry.type() == type;
+	}
+
+	// Reads a buffer without copying it
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buffer.hasRemaining()) {
+				return len == 0 ? 0 : -1;
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(int readLimit) {
+			buffer.mark();
+		}
+
+		@Override
+		public synchronized void reset() {
+			buffer.reset();
+		}
+	}
+}
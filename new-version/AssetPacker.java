@@ -0,0 +1,83 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Build-time tool that packs the sounds in {@code sound_files} and the
+ * pre-rendered sprites into one {@link AssetBundle} file:
+ * <pre>
+ * java -Djava.awt.headless=true AssetPacker [sourceDir] [pong.assets]
+ * </pre>
+ */
+public final class AssetPacker {
+
+	private record Asset(String name, byte type, byte[] data) {
+	}
+
+	private AssetPacker() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path source = Paths.get(args.length > 0 ? args[0] : ".");
+		Path output = Paths.get(args.length > 1 ? args[1] : AssetBundle.DEFAULT_FILE);
+
+		List<Asset> assets = new ArrayList<>();
+		Path sounds = source.resolve("sound_files");
+		if (Files.isDirectory(sounds)) {
+			try (Stream<Path> files = Files.list(sounds)) {
+				for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+					if (file.getFileName().toString().endsWith(".wav")) {
+						assets.add(new Asset("sound_files/" + file.getFileName(), AssetBundle.TYPE_SOUND,
+								Files.readAllBytes(file)));
+					}
+				}
+			}
+		}
+
+		ByteArrayOutputStream sprites = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(sprites)) {
+			SpriteAtlas.write(out, PongSimulation.BALL_DIAMETER, PongSimulation.PADDLE_WIDTH,
+					PongRules.DEFAULT.paddleHeight());
+		}
+		assets.add(new Asset(SpriteAtlas.BUNDLE_ENTRY, AssetBundle.TYPE_SPRITES, sprites.toByteArray()));
+
+		write(assets, output);
+		System.out.printf("Packed %d assets into %s (%d bytes)%n", assets.size(), output, Files.size(output));
+	}
+
+	private static void write(List<Asset> assets, Path output) throws IOException {
+		// The index has to be sized before the data offsets are known
+		int indexSize = 3 * Integer.BYTES;
+		for (Asset asset : assets) {
+			ByteArrayOutputStream name = new ByteArrayOutputStream();
+			new DataOutputStream(name).writeUTF(asset.name());
+			indexSize += name.size() + 1 + 2 * Integer.BYTES;
+		}
+
+		try (OutputStream stream = Files.newOutputStream(output);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+			out.writeInt(AssetBundle.MAGIC);
+			out.writeInt(AssetBundle.VERSION);
+			out.writeInt(assets.size());
+			int offset = indexSize;
+			for (Asset asset : assets) {
+				out.writeUTF(asset.name());
+				out.writeByte(asset.type());
+				out.writeInt(offset);
+				out.writeInt(asset.data().length);
+				offset += asset.data().length;
+			}
+			for (Asset asset : assets) {
+				out.write(asset.data());
+			}
+		}
+	}
+}
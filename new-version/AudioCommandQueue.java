@@ -0,0 +1,125 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of audio commands with many producers and one
+ * consumer, after Dmitry Vyukov's bounded MPMC queue.
+ * A command is an int code with a float argument, stored in preallocated
+ * arrays, so offering one allocates nothing and never blocks.
+ *
+ * When the queue is full new commands are dropped. Commands marked as
+ * droppable (sound effects) are already dropped once the queue is filled
+ * past a high watermark, which keeps room for music commands that must not
+ * be lost.
+ */
+public final class AudioCommandQueue {
+    private final int capacity;
+    private final int mask;
+    private final int highWatermark;
+    // sequence[i] == position: slot free for that producer position;
+    // sequence[i] == position + 1: slot holds the command at that position
+    private final AtomicLongArray sequence;
+    private final int[] codes;
+    private final float[] arguments;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of queued commands, rounded up to a
+     *                 power of two
+     */
+    public AudioCommandQueue(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = this.capacity - 1;
+        highWatermark = this.capacity * 3 / 4;
+        sequence = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequence.set(i, i);
+        }
+        codes = new int[this.capacity];
+        arguments = new float[this.capacity];
+    }
+
+    /**
+     * Adds a command without blocking. Safe to call from any thread.
+     *
+     * @param code      Command code
+     * @param argument  Command argument
+     * @param droppable True if the command may be dropped at the high
+     *                  watermark
+     * @return False if the command was dropped
+     */
+    public boolean offer(int code, float argument, boolean droppable) {
+        while (true) {
+            long position = tail.get();
+            if (droppable && position - head >= highWatermark) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            int index = (int) position & mask;
+            long difference = sequence.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    codes[index] = code;
+                    arguments[index] = argument;
+                    // Publishes the slot to the consumer
+                    sequence.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // The consumer has not freed this slot yet, the queue is full
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Another producer took this position, retry with the next one
+        }
+    }
+
+    /**
+     * Removes the oldest command. Must only be called by the consumer thread.
+     *
+     * @param handler Receives the command
+     * @return False if the queue was empty
+     */
+    public boolean poll(Handler handler) {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequence.get(index) != position + 1) {
+            return false;
+        }
+        int code = codes[index];
+        float argument = arguments[index];
+        // Frees the slot for the producer one lap ahead
+        sequence.lazySet(index, position + capacity);
+        head = position + 1;
+        handler.handle(code, argument);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return sequence.get((int) head & mask) != head + 1;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Number of commands dropped because the queue was too full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Executes dequeued commands.
+     */
+    public interface Handler {
+        void handle(int code, float argument);
+    }
+}
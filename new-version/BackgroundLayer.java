@@ -0,0 +1,117 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Cached static layer of the in-game screen.
+ * Holds the background gradient, the grid, the score bar and the center line,
+ * none of which change during a match. The layer is rendered once into an
+ * image compatible with the frame it is drawn into, so blitting it is a plain
+ * copy, and redrawn only when its size or quality changes or when it is
+ * explicitly invalidated.
+ */
+public final class BackgroundLayer {
+
+	private final Score score;
+	private RenderQuality quality = RenderQuality.HIGH;
+	private int width;
+	private int height;
+	private BufferedImage image;
+	private boolean valid;
+
+	/**
+	 * Constructs a background layer for the given field size.
+	 *
+	 * @param width  Width of the game field
+	 * @param height Height of the game field
+	 * @param score  Score whose static parts are baked into the layer
+	 */
+	public BackgroundLayer(int width, int height, Score score) {
+		this.width = width;
+		this.height = height;
+		this.score = score;
+	}
+
+	/**
+	 * Changes the size of the layer, invalidating it if the size differs.
+	 *
+	 * @param width  New width of the game field
+	 * @param height New height of the game field
+	 */
+	public void setSize(int width, int height) {
+		if (width != this.width || height != this.height) {
+			this.width = width;
+			this.height = height;
+			invalidate();
+		}
+	}
+
+	/**
+	 * Changes the quality tier, invalidating the layer if it differs: lower
+	 * tiers draw a flat background without the grid.
+	 *
+	 * @param quality Tier to draw the layer at
+	 */
+	public void setQuality(RenderQuality quality) {
+		if (quality != this.quality) {
+			this.quality = quality;
+			invalidate();
+		}
+	}
+
+	/**
+	 * Forces the layer to be redrawn on the next frame, e.g. after a theme
+	 * change.
+	 */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Blits the cached layer, rendering it first if needed.
+	 *
+	 * @param g Graphics context of the frame being drawn
+	 */
+	public void draw(Graphics2D g) {
+		if (image == null || image.getWidth() != width || image.getHeight() != height) {
+			// The frame is an offscreen image, so a volatile layer would only be read back from VRAM
+			image = g.getDeviceConfiguration().createCompatibleImage(width, height, Transparency.OPAQUE);
+			valid = false;
+		}
+		if (!valid) {
+			Graphics2D layer = image.createGraphics();
+			try {
+				render(layer);
+			} finally {
+				layer.dispose();
+			}
+			valid = true;
+		}
+		g.drawImage(image, 0, 0, null);
+	}
+
+	private void render(Graphics2D g2d) {
+		// Create a dark gradient background, or fill with its middle color
+		if (quality.gradients()) {
+			GradientPaint backgroundGradient = new GradientPaint(
+					0, 0, new Color(20, 20, 30),
+					width, height, new Color(40, 40, 60));
+			g2d.setPaint(backgroundGradient);
+		} else {
+			g2d.setColor(new Color(30, 30, 45));
+		}
+		g2d.fillRect(0, 0, width, height);
+
+		// Add subtle grid effect
+		if (quality.grid()) {
+			g2d.setColor(new Color(255, 255, 255, 15));
+			for (int i = 0; i < width; i += 50) {
+				g2d.drawLine(i, 0, i, height);
+			}
+			for (int i = 0; i < height; i += 50) {
+				g2d.drawLine(0, i, width, i);
+			}
+		}
+
+		score.drawStatic(g2d, quality.gradients());
+	}
+}
@@ -0,0 +1,349 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monte-Carlo balancing of the tunable {@link PongRules}.
+ * Simulates bot-vs-bot matches for every combination of a parameter grid on
+ * all cores and writes one CSV row of aggregate statistics per combination as
+ * soon as its matches are done: rally length distribution, points per minute
+ * and first-hit advantage (how often the player who hits the ball first in a
+ * rally wins the point).
+ *
+ * Each worker thread keeps its tallies in primitive arrays and reuses its
+ * simulation for as long as it works on the same rule set, so simulating a
+ * match allocates nothing.
+ *
+ * Usage:
+ * <pre>
+ * java BalancingRunner [--matches 1000] [--out balancing.csv] [--seed 1]
+ *     [--maxVelocity 8,10,12,14] [--paddleHeight 60,80,100,120]
+ *     [--paddleSpeed 6,8,10,12] [--initialSpeed 2,3,4] [--winningScore 5]
+ * </pre>
+ */
+public final class BalancingRunner {
+
+	private static final int TICKS_PER_SECOND = TickScheduler.DEFAULT_RATE;
+	// Matches longer than this are abandoned, e.g. when bots never miss
+	private static final int MAX_TICKS_PER_MATCH = TICKS_PER_SECOND * 60 * 30;
+	// Rally lengths (paddle hits per point) above this share the last bucket
+	private static final int MAX_RALLY = 255;
+	// Matches simulated by one fork/join leaf task
+	private static final int MATCHES_PER_TASK = 64;
+
+	// Tally slots of a grid cell
+	private static final int MATCHES = 0;
+	private static final int ABANDONED = 1;
+	private static final int POINTS = 2;
+	private static final int TICKS = 3;
+	private static final int HITS = 4;
+	private static final int FIRST_HITTER_POINTS = 5;
+	private static final int POINTS_WITH_HIT = 6;
+	private static final int TALLY_SIZE = 7;
+
+	private final PongRules[] grid;
+	private final int matchesPerCell;
+	private final long seed;
+	private final long[][] tallies;
+	private final long[][] rallyHistograms;
+	private final AtomicInteger[] remainingTasks;
+	private final PrintWriter csv;
+	private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+	private BalancingRunner(PongRules[] grid, int matchesPerCell, long seed, PrintWriter csv) {
+		this.grid = grid;
+		this.matchesPerCell = matchesPerCell;
+		this.seed = seed;
+		this.csv = csv;
+		tallies = new long[grid.length][TALLY_SIZE];
+		rallyHistograms = new long[grid.length][MAX_RALLY + 1];
+		remainingTasks = new AtomicInteger[grid.length];
+		int tasksPerCell = (matchesPerCell + MATCHES_PER_TASK - 1) / MATCHES_PER_TASK;
+		for (int i = 0; i < grid.length; i++) {
+			remainingTasks[i] = new AtomicInteger(tasksPerCell);
+		}
+	}
+
+	private void run() {
+		csv.println("maxVelocity,paddleHeight,paddleSpeed,initialSpeed,winningScore,matches,abandoned,points,"
+				+ "meanRally,p50Rally,p90Rally,p99Rally,maxRally,pointsPerMinute,meanMatchSeconds,firstHitAdvantage");
+		csv.flush();
+		ForkJoinPool.commonPool().invoke(new CellRange(0, grid.length));
+	}
+
+	// Splits the grid into cells, then each cell into batches of matches
+	@SuppressWarnings("serial")
+	private final class CellRange extends RecursiveAction {
+		private final int from;
+		private final int to;
+
+		CellRange(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new CellRange(from, middle), new CellRange(middle, to));
+			} else {
+				invokeAll(new MatchBatch(from, 0, matchesPerCell));
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private final class MatchBatch extends RecursiveAction {
+		private final int cell;
+		private final int from;
+		private final int to;
+
+		MatchBatch(int cell, int from, int to) {
+			this.cell = cell;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > MATCHES_PER_TASK) {
+				// Split on a batch boundary so the task count per cell stays exact
+				int batches = (to - from + MATCHES_PER_TASK - 1) / MATCHES_PER_TASK;
+				int middle = from + batches / 2 * MATCHES_PER_TASK;
+				invokeAll(new MatchBatch(cell, from, middle), new MatchBatch(cell, middle, to));
+				return;
+			}
+			Worker worker = workers.get();
+			PongSimulation simulation = worker.simulation(grid[cell]);
+			for (int match = from; match < to; match++) {
+				// Every match has its own reproducible seed
+				long matchSeed = seed * 1_000_003L + (long) cell * matchesPerCell + match;
+				simulateMatch(simulation, matchSeed, worker.tally, worker.histogram);
+			}
+			merge(cell, worker.tally, worker.histogram);
+		}
+	}
+
+	// Scratch state of one worker thread, emptied after each batch is merged
+	private static final class Worker {
+		private final long[] tally = new long[TALLY_SIZE];
+		private final long[] histogram = new long[MAX_RALLY + 1];
+		private PongSimulation simulation;
+
+		PongSimulation simulation(PongRules rules) {
+			if (simulation == null || simulation.getRules() != rules) {
+				simulation = new PongSimulation(rules, 0);
+			}
+			return simulation;
+		}
+	}
+
+	private static void simulateMatch(PongSimulation simulation, long matchSeed, long[] tally, long[] histogram) {
+		simulation.reset(matchSeed);
+		long botState = matchSeed ^ 0x5DEECE66DL;
+		int rally = 0;
+		int firstHitter = 0;
+		int target1 = PongSimulation.GAME_HEIGHT / 2;
+		int target2 = PongSimulation.GAME_HEIGHT / 2;
+		int ticks = 0;
+
+		while (!simulation.isGameOver() && ticks < MAX_TICKS_PER_MATCH) {
+			// Bots re-aim at the ball every few ticks with a random offset
+			if (ticks % 6 == 0) {
+				botState = nextRandom(botState);
+				target1 = aim(simulation, botState);
+				botState = nextRandom(botState);
+				target2 = aim(simulation, botState);
+			}
+			int input1 = steer(simulation.getPaddle1Y(), simulation, target1);
+			int input2 = steer(simulation.getPaddle2Y(), simulation, target2);
+
+			int events = simulation.step(input1, input2);
+			ticks++;
+
+			if ((events & PongSimulation.EVENT_PADDLE_HIT) != 0) {
+				rally++;
+				tally[HITS]++;
+				if (firstHitter == 0) {
+					// The ball leaves the left paddle to the right
+					firstHitter = simulation.getBallXVelocity() > 0 ? 1 : 2;
+				}
+			}
+			if ((events & PongSimulation.EVENT_POINT) != 0) {
+				tally[POINTS]++;
+				histogram[Math.min(rally, MAX_RALLY)]++;
+				if (firstHitter != 0) {
+					tally[POINTS_WITH_HIT]++;
+					int winner = (events & PongSimulation.EVENT_POINT_PLAYER1) != 0 ? 1 : 2;
+					if (winner == firstHitter) {
+						tally[FIRST_HITTER_POINTS]++;
+					}
+				}
+				rally = 0;
+				firstHitter = 0;
+			}
+		}
+
+		tally[MATCHES]++;
+		tally[TICKS] += ticks;
+		if (!simulation.isGameOver()) {
+			tally[ABANDONED]++;
+		}
+	}
+
+	// Ball center plus up to +/- 45% of the paddle height of aiming error
+	private static int aim(PongSimulation simulation, long random) {
+		int paddleHeight = simulation.getRules().paddleHeight();
+		int error = (int) ((random >>> 33) % (paddleHeight * 9 / 10 + 1)) - paddleHeight * 9 / 20;
+		return simulation.getBallY() + PongSimulation.BALL_DIAMETER / 2 + error;
+	}
+
+	private static int steer(int paddleY, PongSimulation simulation, int target) {
+		int paddleSpeed = simulation.getRules().paddleSpeed();
+		int center = paddleY + simulation.getRules().paddleHeight() / 2;
+		if (target < center - paddleSpeed) {
+			return PongSimulation.INPUT_UP;
+		}
+		if (target > center + paddleSpeed) {
+			return PongSimulation.INPUT_DOWN;
+		}
+		return PongSimulation.INPUT_NONE;
+	}
+
+	// xorshift64, cheaper than sharing a Random between bots
+	private static long nextRandom(long x) {
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		return x;
+	}
+
+	private void merge(int cell, long[] tally, long[] histogram) {
+		synchronized (tallies[cell]) {
+			for (int i = 0; i < TALLY_SIZE; i++) {
+				tallies[cell][i] += tally[i];
+			}
+			for (int i = 0; i <= MAX_RALLY; i++) {
+				rallyHistograms[cell][i] += histogram[i];
+			}
+		}
+		Arrays.fill(tally, 0);
+		Arrays.fill(histogram, 0);
+		if (remainingTasks[cell].decrementAndGet() == 0) {
+			writeRow(cell);
+		}
+	}
+
+	private void writeRow(int cell) {
+		PongRules rules = grid[cell];
+		long[] tally = tallies[cell];
+		long[] histogram = rallyHistograms[cell];
+		long points = tally[POINTS];
+		double minutes = tally[TICKS] / (double) TICKS_PER_SECOND / 60;
+
+		long hits = 0;
+		int maxRally = 0;
+		for (int i = 0; i <= MAX_RALLY; i++) {
+			hits += i * histogram[i];
+			if (histogram[i] > 0) {
+				maxRally = i;
+			}
+		}
+
+		String row = String.format("%d,%d,%d,%d,%d,%d,%d,%d,%.3f,%d,%d,%d,%d,%.3f,%.3f,%.4f",
+				rules.maxVelocity(), rules.paddleHeight(), rules.paddleSpeed(), rules.initialSpeed(),
+				rules.winningScore(), tally[MATCHES], tally[ABANDONED], points,
+				points == 0 ? 0.0 : (double) hits / points,
+				percentile(histogram, points, 0.50), percentile(histogram, points, 0.90),
+				percentile(histogram, points, 0.99), maxRally,
+				minutes == 0 ? 0.0 : points / minutes,
+				tally[MATCHES] == 0 ? 0.0 : minutes * 60 / tally[MATCHES],
+				tally[POINTS_WITH_HIT] == 0 ? 0.0 : (double) tally[FIRST_HITTER_POINTS] / tally[POINTS_WITH_HIT]);
+		synchronized (csv) {
+			csv.println(row);
+			csv.flush();
+		}
+	}
+
+	private static int percentile(long[] histogram, long total, double fraction) {
+		long rank = (long) Math.ceil(total * fraction);
+		long seen = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			seen += histogram[i];
+			if (seen >= rank && seen > 0) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	private static PongRules[] buildGrid(int[] maxVelocities, int[] paddleHeights, int[] paddleSpeeds,
+			int[] initialSpeeds, int[] winningScores) {
+		PongRules[] grid = new PongRules[maxVelocities.length * paddleHeights.length * paddleSpeeds.length
+				* initialSpeeds.length * winningScores.length];
+		int i = 0;
+		for (int maxVelocity : maxVelocities) {
+			for (int paddleHeight : paddleHeights) {
+				for (int paddleSpeed : paddleSpeeds) {
+					for (int initialSpeed : initialSpeeds) {
+						for (int winningScore : winningScores) {
+							grid[i++] = new PongRules(maxVelocity, paddleHeight, paddleSpeed, initialSpeed,
+									winningScore);
+						}
+					}
+				}
+			}
+		}
+		return grid;
+	}
+
+	private static int[] parseList(String value) {
+		return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+	}
+
+	public static void main(String[] args) throws IOException {
+		int matches = 1000;
+		long seed = 1;
+		String out = "balancing.csv";
+		int[] maxVelocities = { 8, 10, 12, 14 };
+		int[] paddleHeights = { 60, 80, 100, 120 };
+		int[] paddleSpeeds = { 6, 8, 10, 12 };
+		int[] initialSpeeds = { 2, 3, 4 };
+		int[] winningScores = { PongRules.DEFAULT.winningScore() };
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--matches" -> matches = Integer.parseInt(value);
+				case "--seed" -> seed = Long.parseLong(value);
+				case "--out" -> out = value;
+				case "--maxVelocity" -> maxVelocities = parseList(value);
+				case "--paddleHeight" -> paddleHeights = parseList(value);
+				case "--paddleSpeed" -> paddleSpeeds = parseList(value);
+				case "--initialSpeed" -> initialSpeeds = parseList(value);
+				case "--winningScore" -> winningScores = parseList(value);
+				default -> {
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(2);
+				}
+			}
+		}
+
+		PongRules[] grid = buildGrid(maxVelocities, paddleHeights, paddleSpeeds, initialSpeeds, winningScores);
+		System.out.printf("Simulating %d matches for each of %d rule sets on %d threads%n",
+				matches, grid.length, ForkJoinPool.commonPool().getParallelism());
+
+		long start = System.nanoTime();
+		try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(Paths.get(out)))) {
+			new BalancingRunner(grid, matches, seed, csv).run();
+		}
+		System.out.printf("%d matches in %.1f s, results in %s%n",
+				(long) matches * grid.length, (System.nanoTime() - start) / 1e9, out);
+	}
+}
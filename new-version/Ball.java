@@ -1,17 +1,15 @@
 import java.awt.*;
-import java.awt.geom.Point2D;
-import java.util.*;
 
 /**
  * Represents the game ball in the Ping Pong game.
- * Handles ball movement, velocity, and rendering.
+ * Handles rendering; the ball's movement and velocity are owned by
+ * {@link PongSimulation}.
  */
 public class Ball extends Rectangle {
 
-	private final Random random;
-	private int xVelocity;
-	private int yVelocity;
-	private static final int INITIAL_SPEED = 2;
+	// Area the sprite covered when last drawn, and where it covers now
+	private final Rectangle drawn = new Rectangle();
+	private final Rectangle bounds = new Rectangle();
 
 	/**
 	 * Constructs a new ball with specified position and dimensions.
@@ -23,85 +21,26 @@ public class Ball extends Rectangle {
 	 */
 	public Ball(int x, int y, int width, int height) {
 		super(x, y, width, height);
-		random = new Random();
-		initializeVelocity();
-	}
-
-	private void initializeVelocity() {
-		int randomXDirection = random.nextInt(2) == 0 ? -1 : 1;
-		int randomYDirection = random.nextInt(2) == 0 ? -1 : 1;
-		setXDirection(randomXDirection * INITIAL_SPEED);
-		setYDirection(randomYDirection * INITIAL_SPEED);
-	}
-
-	/**
-	 * Method to set the xVelocity of the ball
-	 * 
-	 * @param randomXDirection Horizontal velocity direction
-	 */
-	public void setXDirection(int randomXDirection) {
-		xVelocity = randomXDirection;
-	}
-
-	/**
-	 * Method to set the yVelocity of the ball
-	 * 
-	 * @param randomYDirection Vertical velocity direction
-	 */
-	public void setYDirection(int randomYDirection) {
-		yVelocity = randomYDirection;
 	}
 
 	/**
-	 * Updates the ball's position based on its velocity.
-	 */
-	public void move() {
-		x += xVelocity;
-		y += yVelocity;
-	}
-
-	/**
-	 * Renders the ball on the screen.
+	 * Renders the ball on the screen using its pre-rendered sprite.
 	 * 
 	 * @param g Graphics context for rendering
 	 */
 	public void draw(Graphics g) {
-		Graphics2D g2d = (Graphics2D) g;
-
-		// Enable antialiasing for smoother rendering
-		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-		// Create a gradient for the ball
-		RadialGradientPaint gradient = new RadialGradientPaint(
-				new Point2D.Float(x + width / 2, y + height / 2),
-				width / 2,
-				new float[] { 0.0f, 1.0f },
-				new Color[] { Color.WHITE, new Color(200, 200, 200) });
-
-		g2d.setPaint(gradient);
-		g2d.fillOval(x, y, width, height);
-
-		// Add a subtle shadow
-		g2d.setColor(new Color(0, 0, 0, 50));
-		g2d.drawOval(x, y, width, height);
-	}
-
-	public int getXVelocity() {
-		return xVelocity;
-	}
-
-	public int getYVelocity() {
-		return yVelocity;
+		SpriteAtlas.drawBall(g, x, y, width, height);
+		SpriteAtlas.ballBounds(x, y, width, height, drawn);
 	}
 
 	/**
-	 * Sets the ball's velocity components.
+	 * Reports the area to redraw for the next frame: where the ball was last
+	 * drawn and where it is now.
 	 * 
-	 * @param xVelocity Horizontal velocity
-	 * @param yVelocity Vertical velocity
+	 * @param region Region of the frame to redraw
 	 */
-	public void setVelocity(int xVelocity, int yVelocity) {
-		this.xVelocity = xVelocity;
-		this.yVelocity = yVelocity;
+	public void addDamage(DirtyRegion region) {
+		SpriteAtlas.ballBounds(x, y, width, height, bounds);
+		region.addUnion(drawn, bounds);
 	}
 }
@@ -0,0 +1,163 @@
+import java.awt.Rectangle;
+
+/**
+ * The parts of a frame that changed since the previous one and have to be
+ * redrawn, as a short list of rectangles clipped to the frame. Overlapping
+ * rectangles are merged as they are added; once the list is full, or after
+ * {@link #addAll()}, the region is the whole frame. Rectangles live in
+ * preallocated arrays, so nothing is allocated after construction.
+ */
+public final class DirtyRegion {
+
+	private final int width;
+	private final int height;
+	private final int[] x;
+	private final int[] y;
+	private final int[] right;
+	private final int[] bottom;
+	private int count;
+	private boolean full;
+
+	/**
+	 * @param width    Width of the frame
+	 * @param height   Height of the frame
+	 * @param capacity Number of separate rectangles kept before the whole
+	 *                 frame is redrawn instead
+	 */
+	public DirtyRegion(int width, int height, int capacity) {
+		this.width = width;
+		this.height = height;
+		x = new int[capacity];
+		y = new int[capacity];
+		right = new int[capacity];
+		bottom = new int[capacity];
+	}
+
+	/**
+	 * Adds a rectangle, merging it with every rectangle it overlaps.
+	 *
+	 * @param rx X-coordinate of the rectangle
+	 * @param ry Y-coordinate of the rectangle
+	 * @param rw Width of the rectangle
+	 * @param rh Height of the rectangle
+	 */
+	public void add(int rx, int ry, int rw, int rh) {
+		if (full) {
+			return;
+		}
+		int left = Math.max(rx, 0);
+		int top = Math.max(ry, 0);
+		int r = Math.min(rx + rw, width);
+		int b = Math.min(ry + rh, height);
+		if (r <= left || b <= top) {
+			return;
+		}
+		int i = 0;
+		while (i < count) {
+			if (left < right[i] && r > x[i] && top < bottom[i] && b > y[i]) {
+				// Take the overlapped rectangle in and look again, the union may reach others
+				left = Math.min(left, x[i]);
+				top = Math.min(top, y[i]);
+				r = Math.max(r, right[i]);
+				b = Math.max(b, bottom[i]);
+				remove(i);
+				i = 0;
+			} else {
+				i++;
+			}
+		}
+		if (count == x.length) {
+			addAll();
+			return;
+		}
+		x[count] = left;
+		y[count] = top;
+		right[count] = r;
+		bottom[count] = b;
+		count++;
+	}
+
+	/**
+	 * Adds the smallest rectangle holding both rectangles, e.g. where an
+	 * entity was drawn and where it is now. Empty rectangles are ignored.
+	 *
+	 * @param before First rectangle
+	 * @param after  Second rectangle
+	 */
+	public void addUnion(Rectangle before, Rectangle after) {
+		if (before.isEmpty()) {
+			add(after.x, after.y, after.width, after.height);
+		} else if (after.isEmpty()) {
+			add(before.x, before.y, before.width, before.height);
+		} else {
+			int left = Math.min(before.x, after.x);
+			int top = Math.min(before.y, after.y);
+			add(left, top, Math.max(before.x + before.width, after.x + after.width) - left,
+					Math.max(before.y + before.height, after.y + after.height) - top);
+		}
+	}
+
+	/**
+	 * Marks the whole frame as changed.
+	 */
+	public void addAll() {
+		full = true;
+		count = 1;
+		x[0] = 0;
+		y[0] = 0;
+		right[0] = width;
+		bottom[0] = height;
+	}
+
+	/**
+	 * Empties the region for the next frame.
+	 */
+	public void clear() {
+		full = false;
+		count = 0;
+	}
+
+	/**
+	 * @return True if the whole frame has to be redrawn
+	 */
+	public boolean isFull() {
+		return full;
+	}
+
+	/**
+	 * @return Number of rectangles, one if the region is full
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Copies one rectangle of the region.
+	 *
+	 * @param index  Index of the rectangle, below {@link #size()}
+	 * @param bounds Receives the rectangle
+	 */
+	public void get(int index, Rectangle bounds) {
+		bounds.setBounds(x[index], y[index], right[index] - x[index], bottom[index] - y[index]);
+	}
+
+	/**
+	 * @return Number of pixels covered, which is what redrawing the region
+	 *         costs
+	 */
+	public int getArea() {
+		int area = 0;
+		for (int i = 0; i < count; i++) {
+			area += (right[i] - x[i]) * (bottom[i] - y[i]);
+		}
+		return area;
+	}
+
+	private void remove(int index) {
+		int last = --count;
+		x[index] = x[last];
+		y[index] = y[last];
+		right[index] = right[last];
+		bottom[index] = bottom[last];
+	}
+}
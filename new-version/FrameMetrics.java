@@ -0,0 +1,131 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings of the most recent frames, for the in-game metrics overlay.
+ * Each frame records how long its ticks, drawing and presenting took, how
+ * late the loop woke up for it, how many bytes the game and render threads
+ * allocated and how many pixels of the frame were redrawn, into
+ * preallocated ring buffers that keep the last {@link #getCapacity()}
+ * frames.
+ *
+ * One thread records and one thread reads percentiles. The writer publishes
+ * each frame with an ordered write and never waits; the reader drops any
+ * sample the writer may have overwritten while it was copying, so neither
+ * side takes a lock.
+ */
+public final class FrameMetrics {
+
+	// Indexes of the recorded values
+	public static final int UPDATE = 0;
+	public static final int RENDER = 1;
+	public static final int PRESENT = 2;
+	public static final int JITTER = 3;
+	public static final int ALLOCATED = 4;
+	public static final int FILL = 5;
+	public static final int METRICS = 6;
+
+	private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+	private final int capacity;
+	private final int mask;
+	private final long[][] samples;
+	// Number of frames recorded, only advanced by the writer
+	private final AtomicLong frames = new AtomicLong();
+	// Reader's copy of one metric
+	private final long[] scratch;
+
+	/**
+	 * @param capacity Number of frames kept, rounded up to a power of two
+	 */
+	public FrameMetrics(int capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		mask = this.capacity - 1;
+		samples = new long[METRICS][this.capacity];
+		scratch = new long[this.capacity];
+	}
+
+	/**
+	 * Records one frame. Must only be called by the writer thread.
+	 *
+	 * @param updateNanos    Time spent in the ticks run before the frame
+	 * @param renderNanos    Time spent drawing the frame
+	 * @param presentNanos   Time spent showing the frame
+	 * @param jitterNanos    How late the loop woke up for the frame
+	 * @param allocatedBytes Bytes allocated by the game and render threads for
+	 *                       the frame
+	 * @param filledPixels   Pixels of the frame that were redrawn
+	 */
+	public void record(long updateNanos, long renderNanos, long presentNanos, long jitterNanos,
+			long allocatedBytes, long filledPixels) {
+		long frame = frames.get();
+		int index = (int) frame & mask;
+		samples[UPDATE][index] = updateNanos;
+		samples[RENDER][index] = renderNanos;
+		samples[PRESENT][index] = presentNanos;
+		samples[JITTER][index] = jitterNanos;
+		samples[ALLOCATED][index] = allocatedBytes;
+		samples[FILL][index] = filledPixels;
+		// Publishes the frame to the reader
+		frames.lazySet(frame + 1);
+	}
+
+	/**
+	 * Computes a percentile of every metric over the recorded frames. Must
+	 * only be called by the reader thread.
+	 *
+	 * @param percentile Percentile between 0 and 100
+	 * @param target     Receives the percentile of each metric, indexed like
+	 *                   {@link #UPDATE}; left untouched if nothing was recorded
+	 */
+	public void percentiles(double percentile, long[] target) {
+		for (int metric = 0; metric < METRICS; metric++) {
+			long end = frames.get();
+			long start = Math.max(0, end - capacity);
+			for (long frame = start; frame < end; frame++) {
+				scratch[(int) (frame - start)] = samples[metric][(int) frame & mask];
+			}
+			// The writer reuses the slot of frame f - capacity for frame f
+			long firstIntact = Math.max(start, frames.get() + 1 - capacity);
+			int count = (int) (end - firstIntact);
+			if (count <= 0) {
+				continue;
+			}
+			int from = (int) (firstIntact - start);
+			Arrays.sort(scratch, from, from + count);
+			int rank = (int) Math.ceil(count * percentile / 100);
+			target[metric] = scratch[from + Math.max(rank, 1) - 1];
+		}
+	}
+
+	/**
+	 * @return Number of frames recorded so far
+	 */
+	public long getFrames() {
+		return frames.get();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Bytes allocated by the calling thread so far, or -1 if the JVM
+	 *         does not count them
+	 */
+	public static long threadAllocatedBytes() {
+		return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+	}
+
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean counter
+				&& counter.isThreadAllocatedMemorySupported()) {
+			counter.setThreadAllocatedMemoryEnabled(true);
+			return counter;
+		}
+		return null;
+	}
+}
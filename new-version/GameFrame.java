@@ -1,33 +1,84 @@
 import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GraphicsDevice;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import javax.swing.JFrame;
 
 /**
  * Main window frame for the Ping Pong game.
- * Sets up the game window and initializes the game panel.
+ * Sets up the game window and initializes the game panel. The window can be
+ * resized freely, since the game is scaled to fit; with
+ * {@code -Dpong.fullscreen=true} it takes the whole screen instead, in
+ * exclusive mode where the platform supports it.
  */
 public final class GameFrame extends JFrame {
 
+	private static final boolean FULLSCREEN = Boolean.getBoolean("pong.fullscreen");
+
 	// Instance variable for the GamePanel
 	private final GamePanel panel;
 
 	/**
 	 * Constructs the game window with appropriate settings.
 	 * Initializes a new GamePanel and configures window properties.
+	 *
+	 * @param session Online match to play, or null for two players on one
+	 *                keyboard
 	 */
-	GameFrame() {
-		panel = new GamePanel();
-		initFrame();
+	GameFrame(RollbackSession session) {
+		panel = new GamePanel(session);
+		initFrame(session == null ? "Pong Game" : "Pong Game - Player " + session.getLocalPlayer());
 		panel.startGame(); // Start the game thread after frame initialization
 	}
 
-	private void initFrame() {
+	private void initFrame(String title) {
 		add(panel);
-		setTitle("Pong Game");
-		setResizable(false);
+		setTitle(title);
 		setBackground(Color.black);
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		addWindowListener(new WindowActivity());
+		if (FULLSCREEN) {
+			setUndecorated(true);
+			setResizable(false);
+			GraphicsDevice device = getGraphicsConfiguration().getDevice();
+			if (device.isFullScreenSupported()) {
+				device.setFullScreenWindow(this);
+			} else {
+				// Without exclusive mode, cover the screen with a borderless window
+				setExtendedState(MAXIMIZED_BOTH);
+				setVisible(true);
+			}
+			return;
+		}
+		setResizable(true);
 		pack();
+		Dimension size = getSize();
+		setMinimumSize(new Dimension(size.width / 4, size.height / 4));
 		setVisible(true);
 		setLocationRelativeTo(null);
 	}
+
+	// Lets the game loop idle while the window is minimized or unfocused
+	private final class WindowActivity extends WindowAdapter {
+		@Override
+		public void windowIconified(WindowEvent e) {
+			panel.setWindowActive(false);
+		}
+
+		@Override
+		public void windowDeiconified(WindowEvent e) {
+			panel.setWindowActive(isFocused());
+		}
+
+		@Override
+		public void windowActivated(WindowEvent e) {
+			panel.setWindowActive(true);
+		}
+
+		@Override
+		public void windowDeactivated(WindowEvent e) {
+			panel.setWindowActive(false);
+		}
+	}
 }
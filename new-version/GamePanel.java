@@ -1,53 +1,143 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Main game panel that manages the game loop and all game elements.
- * Handles rendering, game state management, collision detection, and user
- * input.
+ * Handles rendering, game state management and user input; the match itself
+ * is advanced by a headless {@link PongSimulation}. Key events, the menu
+ * animation and the countdown are all handled in the tick on the game
+ * thread, which publishes a {@link RenderState} snapshot through a
+ * {@link TripleBuffer} when a frame is due. A separate render thread draws
+ * the latest snapshot at a fixed logical resolution, scales it to the window
+ * with one blit into a {@link BufferStrategy} (see {@link ScaleMode}) and
+ * presents it, while the next ticks already run. During play only the parts
+ * of the frame that changed are redrawn and presented (see
+ * {@link DirtyRegion}).
  * 
  * Features:
- * - Multiple game states (Menu, Playing, Paused, Game Over)
+ * - Multiple game states (Menu, Countdown, Playing, Paused, Game Over, see {@link GameState})
  * - Animated menu with star field background
  * - Countdown sequence before game start
  * - Score tracking and win condition
  * - Sound effects and background music
- * - Collision detection and ball physics
+ * - Every match recorded to a replay file (see {@link ReplayPlayer})
+ * - Online matches against another player (see {@link RollbackSession})
  * 
  * Controls:
  * - Menu navigation: Arrow keys and Enter
  * - Player 1: W/S keys
  * - Player 2: Up/Down arrows
- * - Pause: Escape
+ * - Online: either set of keys moves your own paddle
+ * - Pause: Escape (local matches only)
+ * - Frame timing overlay: F3 (see {@link FrameMetrics})
  */
-public final class GamePanel extends JPanel implements Runnable {
+public final class GamePanel extends Canvas implements Runnable {
 
 	// constants for game width, height, ball and paddle dimensions
-	private static final int GAME_WIDTH = 1000;
-	private static final int GAME_HEIGHT = (int) (GAME_WIDTH * (0.55555));
+	private static final int GAME_WIDTH = PongSimulation.GAME_WIDTH;
+	private static final int GAME_HEIGHT = PongSimulation.GAME_HEIGHT;
 	private static final Dimension SCREEN_SIZE = new Dimension(GAME_WIDTH, GAME_HEIGHT);
-	private static final int BALL_DIAMETER = 20;
-	private static final int PADDLE_WIDTH = 25;
-	private static final int PADDLE_HEIGHT = 100;
+	private static final int BALL_DIAMETER = PongSimulation.BALL_DIAMETER;
+	private static final int PADDLE_WIDTH = PongSimulation.PADDLE_WIDTH;
+	private static final int PADDLE_HEIGHT = PongRules.DEFAULT.paddleHeight();
 
-	// game thread, image, graphics, random object, paddles and ball
+	// frames are drawn at the logical size and scaled to the canvas, so drawing costs the same at any window size
+	private BufferedImage frameBuffer;
+	private final ScaleMode scaleMode = ScaleMode.fromSystemProperties();
+	private final Rectangle viewport = new Rectangle();
+	private static final AffineTransform DEVICE_SPACE = new AffineTransform();
+	private GraphicsConfiguration deviceConfig;
+	private double deviceScaleX = 1;
+	private double deviceScaleY = 1;
+	// bilinear scaling is only affordable when the blit runs on the GPU
+	private boolean smoothScaling;
+	// false if the back buffer is undefined after a flip, so it is redrawn completely every frame
+	private boolean backBufferKept;
+	private final Rectangle presentedViewport = new Rectangle();
+
+	// parts of the frame buffer redrawn this frame; any change other than moving entities redraws it all
+	private static final int MAX_DIRTY_RECTS = 16;
+	private final DirtyRegion damage = new DirtyRegion(GAME_WIDTH, GAME_HEIGHT, MAX_DIRTY_RECTS);
+	private final Rectangle dirtyRect = new Rectangle();
+	private GameState drawnState;
+	private boolean drawnWaiting;
+	private RenderQuality drawnQuality;
+	private boolean drawnMetrics;
+
+	// game thread, simulation, and the drawn entities
 	private Thread gameThread;
-	private Image image;
-	private Graphics graphics;
-	private final Random random;
-	private Paddle paddle1;
-	private Paddle paddle2;
-	private Ball ball;
+	private Thread renderThread;
+	// set while the render thread waits for a snapshot, so the game thread only wakes it then
+	private volatile boolean renderWaiting;
+	// a paused or finished match shows a still frame, published again only after a key, a
+	// transition, a resize or the window coming back
+	private volatile boolean frameRequested = true;
+	private final TickScheduler scheduler = TickScheduler.fromSystemProperties();
+	private volatile boolean windowActive = true;
+	private final PongSimulation simulation;
+	// Online match, or null when both players share the keyboard
+	private final RollbackSession session;
+
+	// match seeds and the recorder that logs every tick's inputs
+	private final Random seeds = new Random();
+	private final ReplayRecorder recorder = new ReplayRecorder();
+	private static final Path REPLAY_DIR = Paths.get(System.getProperty("pong.replayDir", "replays"));
+
+	// paddle key events from the EDT, applied at the start of the next tick
+	private static final int INPUT_QUEUE_CAPACITY = 256;
+	private final InputQueue inputQueue = new InputQueue(INPUT_QUEUE_CAPACITY);
+	private final InputQueue.Handler keyHandler = this::applyKey;
+	private final boolean reportInputLatency = Boolean.getBoolean("pong.inputStats");
+	private final LatencyHistogram inputLatencyReport = new LatencyHistogram();
+	private long ticksSinceInputReport;
+
+	// per-frame timings, kept while the F3 overlay is shown or a Flight Recorder recording runs;
+	// the game thread keeps running totals, the render thread records and shows them
+	private static final int FRAME_METRICS_CAPACITY = 256;
+	private static final long METRICS_REFRESH_NANOS = 500_000_000L;
+	private final FrameMetrics frameMetrics = new FrameMetrics(FRAME_METRICS_CAPACITY);
+	private boolean showMetrics = Boolean.getBoolean("pong.metrics");
+	private long ticks;
+	private long updateNanos;
+	private final long[] metricsP50 = new long[FrameMetrics.METRICS];
+	private final long[] metricsP99 = new long[FrameMetrics.METRICS];
+	private long metricsRefreshed;
+	private long frameRenderNanos;
+	private long framePresentNanos;
+	private long frameFilledPixels;
+	// totals at the last recorded frame, or -1 after frames that were not measured
+	private long recordedTicks = -1;
+	private long recordedUpdateNanos;
+	private long recordedAllocatedBytes;
+	private long lastAllocatedBytes;
+
+	// render quality tier, stepped down and back up to keep drawing within the frame budget; render thread only
+	private final QualityGovernor qualityGovernor;
+	private RenderQuality quality;
+	private final Paddle paddle1;
+	private final Paddle paddle2;
+	private final Ball ball;
 	private final Score score;
+	private final BackgroundLayer background;
+
+	// sparks on hits, bounces and points, advanced with the simulation tick
+	private static final int MAX_PARTICLES = 4096;
+	private static final int PLAYER1_SPARK_COLOR = 0x64A0FF;
+	private static final int PLAYER2_SPARK_COLOR = 0xFF6464;
+	private static final int WALL_SPARK_COLOR = 0xDCDCDC;
+	private final ParticleSystem particles;
 
-	private static final int GAME_STATE_START = 0;
-	private static final int GAME_STATE_PLAYING = 1;
-	private static final int GAME_STATE_PAUSED = 2;
-	private static final int GAME_STATE_GAME_OVER = 3;
-	private static final int GAME_STATE_COUNTDOWN = 4;
-	private int gameState = GAME_STATE_START;
+	// owned by the game thread, which applies every key event and timed change in the tick
+	private GameState state = GameState.MENU;
 
 	private static final int MENU_OPTION_PLAY = 0;
 	private static final int MENU_OPTION_CONTROLS = 1;
@@ -55,44 +145,89 @@ public final class GamePanel extends JPanel implements Runnable {
 	private int selectedOption = MENU_OPTION_PLAY;
 	private float titleGlow = 0;
 	private boolean glowIncreasing = true;
-	private final ArrayList<Star> stars = new ArrayList<>();
+	private final float glowStep;
+	private long menuTicks;
+	// drawn by the render thread, which advances it to the menu tick of the snapshot
+	private final StarField starField = new StarField(GAME_WIDTH, GAME_HEIGHT);
+	private long starTicks;
 
-	private static final int WINNING_SCORE = 5; // Add winning score constant
 	private boolean gameInitialized = false;
-	private int countdownNumber = 3;
-	private long countdownStartTime;
-
-	// Inner class for background stars
-	private class Star {
-		float x, y;
-		float speed;
-		float brightness;
-
-		Star() {
-			x = random.nextFloat() * GAME_WIDTH;
-			y = random.nextFloat() * GAME_HEIGHT;
-			speed = random.nextFloat() * 2 + 1;
-			brightness = random.nextFloat();
-		}
-
-		void update() {
-			x -= speed;
-			if (x < 0) {
-				x = GAME_WIDTH;
-				y = random.nextFloat() * GAME_HEIGHT;
-			}
-			// Ensure brightness stays between 0.3 and 1.0
-			brightness = (float) (0.3 + (0.7 * Math.abs(Math.sin(System.currentTimeMillis() * 0.003 * speed))));
-		}
-	}
+	// Time to first frame is reported once, after the first present
+	private boolean firstFramePresented;
+	private static final int COUNTDOWN_SECONDS = 3;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private int countdownNumber = COUNTDOWN_SECONDS;
+	private long countdownDeadline;
+
+	// what the frames show, captured from the game state after the last tick
+	private final TripleBuffer<RenderState> snapshots = new TripleBuffer<>(new RenderState(MAX_PARTICLES),
+			new RenderState(MAX_PARTICLES), new RenderState(MAX_PARTICLES));
+	// snapshot for draw(Graphics), which renders on the calling thread
+	private final RenderState drawState = new RenderState(MAX_PARTICLES);
+
+	// Overlay text rendered once, drawn as images every frame
+	private static final Color OVERLAY_COLOR = new Color(0, 0, 0, 150);
+	// Without translucency the overlay text sits on an opaque band instead of dimming the field
+	private static final Color OVERLAY_BAND_COLOR = new Color(10, 10, 15);
+	private static final int OVERLAY_BAND_TOP = GAME_HEIGHT / 2 - 70;
+	private static final int OVERLAY_BAND_HEIGHT = 130;
+	private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 36);
+	private static final Font HINT_FONT = new Font("Arial", Font.PLAIN, 20);
+	private final TextCache.Label startingLabel = TextCache.label("Starting in", new Font("Arial", Font.BOLD, 30),
+			Color.WHITE);
+	private final TextCache.Digits countdownDigits = TextCache.digits(new Font("Arial", Font.BOLD, 28), Color.WHITE);
+	private final TextCache.Label pausedLabel = TextCache.label("PAUSED", TITLE_FONT, Color.WHITE);
+	private final TextCache.Label player1WinsLabel = TextCache.label("GAME OVER - Player 1 Wins!", TITLE_FONT,
+			Color.WHITE);
+	private final TextCache.Label player2WinsLabel = TextCache.label("GAME OVER - Player 2 Wins!", TITLE_FONT,
+			Color.WHITE);
+	private final TextCache.Label continueLabel = TextCache.label("Press SPACE to continue", HINT_FONT, Color.WHITE);
+	private final TextCache.Label playAgainLabel = TextCache.label("Press SPACE to play again", HINT_FONT,
+			Color.WHITE);
+	private final TextCache.Label quitLabel = TextCache.label("Press ESC to quit", HINT_FONT, Color.WHITE);
+	private final TextCache.Label waitingLabel = TextCache.label("Waiting for the other player...", HINT_FONT,
+			Color.WHITE);
+	private final TextCache.Label disconnectedLabel = TextCache.label("Connection to the other player lost",
+			HINT_FONT, Color.WHITE);
+
+	// Frame timing overlay, one row per metric with its p50 and p99
+	private static final Font METRICS_FONT = new Font("Monospaced", Font.PLAIN, 14);
+	private static final int METRICS_ROW = 18;
+	private static final int METRICS_WIDTH = 230;
+	private static final int METRICS_HEIGHT = METRICS_ROW * (FrameMetrics.METRICS + 1) + 8;
+	private static final int METRICS_X = 10;
+	private static final int METRICS_Y = GAME_HEIGHT - METRICS_HEIGHT - 10;
+	private static final int METRICS_P50_RIGHT = METRICS_WIDTH - 80;
+	private static final int METRICS_P99_RIGHT = METRICS_WIDTH - 10;
+	private static final String[] METRIC_NAMES = { "update µs", "render µs", "present µs", "jitter µs", "alloc B",
+			"fill px" };
+	// backdrop and labels in one image, since a translucent fillRect allocates on every call
+	private final BufferedImage metricsPanel = createMetricsPanel();
+	private final TextCache.Digits metricDigits = TextCache.digits(METRICS_FONT, Color.WHITE);
+	private final TextCache.Label[] qualityLabels = qualityLabels();
 
 	// constructor of GamePanel
 	GamePanel() {
-		random = new Random();
-		paddle1 = new Paddle(0, (GAME_HEIGHT / 2) - (PADDLE_HEIGHT / 2), PADDLE_WIDTH, PADDLE_HEIGHT, 1);
-		paddle2 = new Paddle(GAME_WIDTH - PADDLE_WIDTH, (GAME_HEIGHT / 2) - (PADDLE_HEIGHT / 2), PADDLE_WIDTH,
-				PADDLE_HEIGHT, 2);
+		this(null);
+	}
+
+	/**
+	 * @param session Online match to play, or null for two players on one
+	 *                keyboard
+	 */
+	GamePanel(RollbackSession session) {
+		this.session = session;
+		simulation = session != null ? session.getSimulation()
+				: new PongSimulation(PongRules.DEFAULT, seeds.nextLong(), scheduler.getTicksPerSecond());
+		paddle1 = new Paddle(0, simulation.getPaddle1Y(), PADDLE_WIDTH, PADDLE_HEIGHT, 1);
+		paddle2 = new Paddle(GAME_WIDTH - PADDLE_WIDTH, simulation.getPaddle2Y(), PADDLE_WIDTH, PADDLE_HEIGHT, 2);
+		ball = new Ball(simulation.getBallX(), simulation.getBallY(), BALL_DIAMETER, BALL_DIAMETER);
 		score = new Score(GAME_WIDTH, GAME_HEIGHT);
+		background = new BackgroundLayer(GAME_WIDTH, GAME_HEIGHT, score);
+		particles = new ParticleSystem(MAX_PARTICLES, GAME_WIDTH, GAME_HEIGHT, scheduler.getTicksPerSecond());
+		glowStep = 1f / scheduler.getTicksPerSecond(); // the title fades in and out once a second
+		qualityGovernor = QualityGovernor.fromSystemProperties(scheduler.getTicksPerSecond());
+		applyQuality(qualityGovernor.getQuality());
 
 		// set focusable true and add key listener
 		this.setFocusable(true);
@@ -101,104 +236,370 @@ public final class GamePanel extends JPanel implements Runnable {
 		// set preferred size of the panel
 		this.setPreferredSize(SCREEN_SIZE);
 
-		// Initialize stars
-		for (int i = 0; i < 100; i++) {
-			stars.add(new Star());
-		}
+		// frames are presented by the game loop, not by AWT repaint requests
+		this.setIgnoreRepaint(true);
+		this.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				frameRequested = true;
+			}
+		});
 
-		// Initialize sound
+		// Load sounds and sprites in the background so the menu is drawn right away
 		SoundManager.init();
 		SoundManager.playMenuMusic();
+		if (session != null) {
+			// Online matches skip the menu; the countdown starts once both players are connected
+			transition(GameState.COUNTDOWN);
+		}
+		CompletableFuture.runAsync(() -> SpriteAtlas.preload(BALL_DIAMETER, PADDLE_WIDTH, PADDLE_HEIGHT));
 	}
 
+	/**
+	 * Creates the buffer strategy and starts the game loop.
+	 * Must be called once the panel has been added to a visible frame.
+	 */
 	public void startGame() {
+		createBufferStrategy(2);
+		BufferCapabilities capabilities = getBufferStrategy().getCapabilities();
+		smoothScaling = capabilities.getBackBufferCapabilities().isAccelerated();
+		backBufferKept = !capabilities.isPageFlipping()
+				|| capabilities.getFlipContents() == BufferCapabilities.FlipContents.COPIED;
+		frameBuffer = getGraphicsConfiguration().createCompatibleImage(GAME_WIDTH, GAME_HEIGHT, Transparency.OPAQUE);
+		initializeGame(); // before the game thread takes over the state
+		renderThread = new Thread(this::renderLoop, "Render");
+		renderThread.setDaemon(true);
+		renderThread.start();
 		gameThread = new Thread(this);
 		gameThread.start();
-		initializeGame();
 	}
 
 	private void initializeGame() {
 		if (!gameInitialized) {
-			newBall();
-			newPaddles();
-			score.resetScore();
+			// An online match is seeded by the host and not recorded
+			if (session == null) {
+				long seed = seeds.nextLong();
+				simulation.reset(seed);
+				recorder.start(seed, scheduler.getTicksPerSecond());
+			}
+			paddle1.clearInput();
+			paddle2.clearInput();
+			particles.clear();
 			gameInitialized = true;
 		}
 	}
 
-	// method to create new ball
-	public void newBall() {
-		// Randomize initial direction
-		int initialXVelocity = (random.nextBoolean() ? 1 : -1) * 2;
-		int initialYVelocity = random.nextInt(4) - 2; // Random value between -2 and 2
+	// copy everything a frame shows into the snapshot; game thread only
+	private void captureRenderState(RenderState s) {
+		s.state = state;
+		s.selectedOption = selectedOption;
+		s.titleGlow = titleGlow;
+		s.menuTicks = menuTicks;
+		s.countdownNumber = countdownNumber;
+		s.ballX = simulation.getBallX();
+		s.ballY = simulation.getBallY();
+		s.paddle1Y = simulation.getPaddle1Y();
+		s.paddle2Y = simulation.getPaddle2Y();
+		s.player1Score = simulation.getPlayer1Score();
+		s.player2Score = simulation.getPlayer2Score();
+		particles.capture(s.particles);
+		s.online = session != null;
+		s.waiting = session != null && session.isWaiting();
+		s.disconnected = session != null && session.getFailure() != null;
+		s.showMetrics = showMetrics;
+		s.measured = showMetrics || PongEvents.isFrameEnabled();
+		if (s.measured) {
+			s.ticks = ticks;
+			s.updateNanos = updateNanos;
+			s.tickJitter = scheduler.getLastJitterNanos();
+			s.allocatedBytes = FrameMetrics.threadAllocatedBytes();
+		}
+	}
 
-		ball = new Ball((GAME_WIDTH / 2) - (BALL_DIAMETER / 2),
-				(GAME_HEIGHT / 2) - (BALL_DIAMETER / 2),
-				BALL_DIAMETER, BALL_DIAMETER);
-		ball.setXDirection(initialXVelocity);
-		ball.setYDirection(initialYVelocity);
+	// draw the latest snapshot whenever the game thread has published a new one
+	private void renderLoop() {
+		while (true) {
+			if (!snapshots.acquire()) {
+				renderWaiting = true;
+				// re-check after announcing the wait, or a snapshot published in between would be missed
+				if (!snapshots.hasFresh()) {
+					LockSupport.park(this);
+				}
+				renderWaiting = false;
+				continue;
+			}
+			RenderState s = snapshots.getReadBuffer();
+			s.quality = quality;
+			PongEvents.Frame event = PongEvents.isFrameEnabled() ? new PongEvents.Frame() : null;
+			if (event != null) {
+				event.begin();
+			}
+			render(s);
+			recordFrame(event, s);
+			applyQuality(qualityGovernor.update(frameRenderNanos));
+		}
 	}
 
-	// method to create new paddles
-	public void newPaddles() {
-		paddle1 = new Paddle(0, (GAME_HEIGHT / 2) - (PADDLE_HEIGHT / 2), PADDLE_WIDTH, PADDLE_HEIGHT, 1);
-		paddle2 = new Paddle(GAME_WIDTH - PADDLE_WIDTH, (GAME_HEIGHT / 2) - (PADDLE_HEIGHT / 2), PADDLE_WIDTH,
-				PADDLE_HEIGHT, 2);
+	// move the drawn entities to the positions in the snapshot
+	private void syncEntities(RenderState s) {
+		ball.setLocation(s.ballX, s.ballY);
+		paddle1.y = s.paddle1Y;
+		paddle2.y = s.paddle2Y;
+		score.setScores(s.player1Score, s.player2Score);
 	}
 
-	// paint method to draw the game elements
-	@Override
-	public void paint(Graphics g) {
-		super.paint(g);
-		Graphics2D g2d = (Graphics2D) g;
-		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	// render one frame into the back buffer and present it; render thread only
+	private void render(RenderState s) {
+		BufferStrategy strategy = getBufferStrategy();
+		if (strategy == null) {
+			return;
+		}
+		long start = System.nanoTime();
+		Graphics2D frame = frameBuffer.createGraphics();
+		try {
+			collectDamage(s);
+			if (damage.isFull()) {
+				drawFrame(frame, s);
+			} else {
+				drawDamage(frame, s);
+			}
+		} finally {
+			frame.dispose();
+		}
+		frameFilledPixels = damage.getArea();
+		long drawn = System.nanoTime();
+		boolean partial = !damage.isFull() && backBufferKept;
+		do {
+			do {
+				Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+				try {
+					present(g2d, partial);
+				} finally {
+					g2d.dispose();
+				}
+				partial = false; // a restored or lost buffer has to be presented completely
+			} while (strategy.contentsRestored()); // redraw if the buffer was restored mid-frame
+			strategy.show();
+		} while (strategy.contentsLost());
+		Toolkit.getDefaultToolkit().sync();
+		frameRenderNanos = drawn - start;
+		framePresentNanos = System.nanoTime() - drawn;
+
+		if (!firstFramePresented) {
+			firstFramePresented = true;
+			System.out.printf("First frame after %d ms%n", ManagementFactory.getRuntimeMXBean().getUptime());
+		}
+	}
 
-		if (gameState == GAME_STATE_START) {
-			drawStartScreen(g2d);
+	// find what changed since the last frame: moving entities during play, everything otherwise
+	private void collectDamage(RenderState s) {
+		damage.clear();
+		if (s.state != GameState.PLAYING || s.waiting || s.state != drawnState || s.waiting != drawnWaiting
+				|| s.quality != drawnQuality || s.showMetrics != drawnMetrics) {
+			damage.addAll();
 		} else {
-			image = createImage(getWidth(), getHeight());
-			graphics = image.getGraphics();
-			draw(graphics);
-			g.drawImage(image, 0, 0, this);
+			syncEntities(s);
+			paddle1.addDamage(damage);
+			paddle2.addDamage(damage);
+			ball.addDamage(damage);
+			if (s.quality.particles()) {
+				particles.plot(s.particles);
+				particles.addDamage(damage);
+			}
+			score.addDamage(damage);
+			if (s.showMetrics) {
+				damage.add(METRICS_X, METRICS_Y, METRICS_WIDTH, METRICS_HEIGHT);
+			}
 		}
+		drawnState = s.state;
+		drawnWaiting = s.waiting;
+		drawnQuality = s.quality;
+		drawnMetrics = s.showMetrics;
 	}
 
-	private void drawStartScreen(Graphics2D g) {
-		// Draw animated starfield background
-		g.setColor(Color.BLACK);
-		g.fillRect(0, 0, GAME_WIDTH, GAME_HEIGHT);
+	// redraw the damaged rectangles of the last frame, background first, clipped to each one
+	private void drawDamage(Graphics2D g2d, RenderState s) {
+		for (int i = 0; i < damage.size(); i++) {
+			damage.get(i, dirtyRect);
+			g2d.setClip(dirtyRect.x, dirtyRect.y, dirtyRect.width, dirtyRect.height);
+			drawGame(g2d, s);
+			if (s.showMetrics) {
+				drawMetrics(g2d, s);
+			}
+		}
+		g2d.setClip(null);
+	}
 
-		// Update and draw stars
-		for (Star star : stars) {
-			star.update();
-			float clampedBrightness = Math.max(0.0f, Math.min(1.0f, star.brightness));
-			g.setColor(new Color(1f, 1f, 1f, clampedBrightness));
-			g.fillRect((int) star.x, (int) star.y, 2, 2);
+	// scale the logical frame into the canvas, in device pixels so HiDPI and integer scales stay exact
+	private void present(Graphics2D g2d, boolean partial) {
+		GraphicsConfiguration config = getGraphicsConfiguration();
+		if (config != deviceConfig && config != null) {
+			// the window moved to another screen, or this is the first frame
+			deviceConfig = config;
+			AffineTransform scale = config.getDefaultTransform();
+			deviceScaleX = scale.getScaleX();
+			deviceScaleY = scale.getScaleY();
 		}
+		int width = (int) Math.round(getWidth() * deviceScaleX);
+		int height = (int) Math.round(getHeight() * deviceScaleY);
+		g2d.setTransform(DEVICE_SPACE);
+		scaleMode.place(GAME_WIDTH, GAME_HEIGHT, width, height, viewport);
+		// whole scales keep the pixels sharp, others are smoothed where the blit is accelerated
+		boolean wholeScale = viewport.width % GAME_WIDTH == 0 && viewport.height % GAME_HEIGHT == 0;
+		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, wholeScale || !smoothScaling
+				? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+				: RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+		if (partial && viewport.equals(presentedViewport)) {
+			// only the damaged rectangles, each grown by a pixel for the filtering at its edges
+			for (int i = 0; i < damage.size(); i++) {
+				damage.get(i, dirtyRect);
+				int left = viewport.x + (dirtyRect.x - 1) * viewport.width / GAME_WIDTH;
+				int top = viewport.y + (dirtyRect.y - 1) * viewport.height / GAME_HEIGHT;
+				int right = viewport.x + ceilDiv((dirtyRect.x + dirtyRect.width + 1) * viewport.width, GAME_WIDTH);
+				int bottom = viewport.y + ceilDiv((dirtyRect.y + dirtyRect.height + 1) * viewport.height, GAME_HEIGHT);
+				g2d.setClip(left, top, right - left, bottom - top);
+				g2d.drawImage(frameBuffer, viewport.x, viewport.y, viewport.width, viewport.height, null);
+			}
+			return;
+		}
+		presentedViewport.setBounds(viewport);
+
+		// letterbox bars
+		g2d.setColor(Color.BLACK);
+		if (viewport.x > 0) {
+			g2d.fillRect(0, 0, viewport.x, height);
+			g2d.fillRect(viewport.x + viewport.width, 0, width - viewport.x - viewport.width, height);
+		}
+		if (viewport.y > 0) {
+			g2d.fillRect(0, 0, width, viewport.y);
+			g2d.fillRect(0, viewport.y + viewport.height, width, height - viewport.y - viewport.height);
+		}
+
+		g2d.drawImage(frameBuffer, viewport.x, viewport.y, viewport.width, viewport.height, null);
+	}
+
+	// division rounding up, for non-negative values
+	private static int ceilDiv(int dividend, int divisor) {
+		return (dividend + divisor - 1) / divisor;
+	}
+
+	/**
+	 * Draws the current state of the game, e.g. into an offscreen image. Must
+	 * be called on the game thread, and not while the render thread runs.
+	 */
+	public void draw(Graphics g) {
+		captureRenderState(drawState);
+		drawState.quality = quality;
+		drawFrame((Graphics2D) g, drawState);
+	}
+
+	// everything drawn comes from the snapshot, the star field and the particles
+	private void drawFrame(Graphics2D g2d, RenderState s) {
+		if (s.state == GameState.MENU) {
+			if (s.quality.antialiasing()) {
+				g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			}
+			drawStartScreen(g2d, s);
+		} else {
+			syncEntities(s);
+			if (s.quality.particles()) {
+				particles.plot(s.particles);
+			}
+			drawGame(g2d, s);
+		}
+		if (s.showMetrics) {
+			drawMetrics(g2d, s);
+		}
+	}
+
+	private void drawMetrics(Graphics2D g2d, RenderState s) {
+		g2d.drawImage(metricsPanel, METRICS_X, METRICS_Y, null);
+		int baseline = METRICS_Y + METRICS_ROW;
+		qualityLabels[s.quality.ordinal()].draw(g2d, METRICS_X + 10, baseline);
+		for (int i = 0; i < FrameMetrics.METRICS; i++) {
+			baseline += METRICS_ROW;
+			drawMetric(g2d, i, metricsP50[i], METRICS_X + METRICS_P50_RIGHT, baseline);
+			drawMetric(g2d, i, metricsP99[i], METRICS_X + METRICS_P99_RIGHT, baseline);
+		}
+	}
+
+	private static TextCache.Label[] qualityLabels() {
+		RenderQuality[] tiers = RenderQuality.values();
+		TextCache.Label[] labels = new TextCache.Label[tiers.length];
+		for (RenderQuality tier : tiers) {
+			labels[tier.ordinal()] = TextCache.label(tier.name().toLowerCase(Locale.ROOT), METRICS_FONT, Color.WHITE);
+		}
+		return labels;
+	}
+
+	private static BufferedImage createMetricsPanel() {
+		BufferedImage image = new BufferedImage(METRICS_WIDTH, METRICS_HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(OVERLAY_COLOR);
+			g.fillRect(0, 0, METRICS_WIDTH, METRICS_HEIGHT);
+			g.setFont(METRICS_FONT);
+			g.setColor(Color.WHITE);
+			FontMetrics metrics = g.getFontMetrics();
+			g.drawString("p50", METRICS_P50_RIGHT - metrics.stringWidth("p50"), METRICS_ROW);
+			g.drawString("p99", METRICS_P99_RIGHT - metrics.stringWidth("p99"), METRICS_ROW);
+			for (int i = 0; i < METRIC_NAMES.length; i++) {
+				g.drawString(METRIC_NAMES[i], 10, METRICS_ROW * (i + 2));
+			}
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	// right-aligned, times in microseconds, allocations in bytes and fill in pixels
+	private void drawMetric(Graphics2D g2d, int metric, long value, int right, int baseline) {
+		long shown = metric == FrameMetrics.ALLOCATED || metric == FrameMetrics.FILL ? value : value / 1000;
+		int number = (int) Math.min(Math.max(shown, 0), Integer.MAX_VALUE);
+		metricDigits.drawNumber(g2d, number, 1, right - metricDigits.getWidth(number, 1), baseline);
+	}
+
+	private void drawStartScreen(Graphics2D g, RenderState s) {
+		// Catch the stars up with the menu ticks since the last drawn frame
+		long behind = s.menuTicks - starTicks;
+		for (long i = Math.min(behind, scheduler.getTicksPerSecond()); i > 0; i--) {
+			starField.update();
+		}
+		starTicks = s.menuTicks;
+
+		// Draw the animated starfield, which also clears the background
+		starField.draw(g);
 
 		// Draw glowing title with gaming font
 		g.setFont(new Font("Arial Black", Font.BOLD, 80));
-		GradientPaint gradient = new GradientPaint(
-				0, GAME_HEIGHT / 2 - 100, new Color(66, 135, 245),
-				GAME_WIDTH, GAME_HEIGHT / 2 - 100, new Color(245, 66, 66));
-		g.setPaint(gradient);
 		String title = "PING PONG";
 		FontMetrics titleMetrics = g.getFontMetrics();
 		int titleX = (GAME_WIDTH - titleMetrics.stringWidth(title)) / 2;
 
-		// Add shadow effect to title
-		g.setColor(new Color(0, 0, 0, 100));
-		g.drawString(title, titleX + 4, GAME_HEIGHT / 3 + 4);
+		if (s.quality.gradients()) {
+			GradientPaint gradient = new GradientPaint(
+					0, GAME_HEIGHT / 2 - 100, new Color(66, 135, 245),
+					GAME_WIDTH, GAME_HEIGHT / 2 - 100, new Color(245, 66, 66));
+
+			// Add shadow effect to title
+			g.setColor(new Color(0, 0, 0, 100));
+			g.drawString(title, titleX + 4, GAME_HEIGHT / 3 + 4);
 
-		// Draw main title
-		g.setPaint(gradient);
-		g.drawString(title, titleX, GAME_HEIGHT / 3);
+			// Draw main title
+			g.setPaint(gradient);
+			g.drawString(title, titleX, GAME_HEIGHT / 3);
 
-		// Draw glow effect
-		Composite originalComposite = g.getComposite();
-		g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, titleGlow * 0.5f));
-		g.drawString(title, titleX, GAME_HEIGHT / 3);
-		g.setComposite(originalComposite);
+			// Draw glow effect
+			Composite originalComposite = g.getComposite();
+			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, s.titleGlow * 0.5f));
+			g.drawString(title, titleX, GAME_HEIGHT / 3);
+			g.setComposite(originalComposite);
+		} else {
+			// Flat title in the middle of the gradient's colors
+			g.setColor(new Color(155, 100, 155));
+			g.drawString(title, titleX, GAME_HEIGHT / 3);
+		}
 
 		// Draw menu options with enhanced styling
 		g.setFont(new Font("Segoe UI", Font.BOLD, 28));
@@ -210,7 +611,7 @@ public final class GamePanel extends JPanel implements Runnable {
 			FontMetrics metrics = g.getFontMetrics();
 			int y = menuStartY + (i * menuSpacing);
 
-			if (i == selectedOption) {
+			if (i == s.selectedOption) {
 				// Draw glowing selection
 				g.setColor(new Color(255, 255, 255, 50));
 				int rectWidth = metrics.stringWidth(options[i]) + 60;
@@ -238,7 +639,7 @@ public final class GamePanel extends JPanel implements Runnable {
 		}
 
 		// Draw controls with enhanced styling
-		if (selectedOption == MENU_OPTION_CONTROLS) {
+		if (s.selectedOption == MENU_OPTION_CONTROLS) {
 			// Semi-transparent background panel
 			g.setColor(new Color(0, 0, 0, 230));
 			int panelWidth = GAME_WIDTH / 4;
@@ -277,258 +678,400 @@ public final class GamePanel extends JPanel implements Runnable {
 		}
 	}
 
-	public void draw(Graphics g) {
-		Graphics2D g2d = (Graphics2D) g;
-
-		// Create a dark gradient background
-		GradientPaint backgroundGradient = new GradientPaint(
-				0, 0, new Color(20, 20, 30),
-				GAME_WIDTH, GAME_HEIGHT, new Color(40, 40, 60));
-		g2d.setPaint(backgroundGradient);
-		g2d.fillRect(0, 0, GAME_WIDTH, GAME_HEIGHT);
-
-		// Add subtle grid effect
-		g2d.setColor(new Color(255, 255, 255, 15));
-		for (int i = 0; i < GAME_WIDTH; i += 50) {
-			g2d.drawLine(i, 0, i, GAME_HEIGHT);
-		}
-		for (int i = 0; i < GAME_HEIGHT; i += 50) {
-			g2d.drawLine(0, i, GAME_WIDTH, i);
-		}
+	private void drawGame(Graphics2D g2d, RenderState s) {
+		// Static background, grid, score bar and center line from the cache
+		background.draw(g2d);
 
 		// Draw game elements
 		paddle1.draw(g2d);
 		paddle2.draw(g2d);
-		if (gameState != GAME_STATE_START && gameState != GAME_STATE_COUNTDOWN) {
+		if (s.state.showsBall()) {
 			ball.draw(g2d);
 		}
+		if (s.quality.particles()) {
+			particles.drawPlotted(g2d);
+		}
 		score.draw(g2d);
 
-		// Draw countdown overlay
-		if (gameState == GAME_STATE_COUNTDOWN) {
-			g2d.setColor(new Color(0, 0, 0, 150));
-			g2d.fillRect(0, 0, GAME_WIDTH, GAME_HEIGHT);
+		// Draw countdown overlay, or hold it until the other player is connected
+		if (s.state == GameState.COUNTDOWN && s.waiting) {
+			drawNetworkStatus(g2d, s);
+		} else if (s.state == GameState.COUNTDOWN) {
+			drawOverlay(g2d, s);
 
-			g2d.setColor(Color.WHITE);
-			g2d.setFont(new Font("Arial", Font.BOLD, 30));
-			String startingText = "Starting in";
-			FontMetrics metrics = g2d.getFontMetrics();
-			g2d.drawString(startingText,
-					(GAME_WIDTH - metrics.stringWidth(startingText)) / 2,
+			startingLabel.draw(g2d,
+					(GAME_WIDTH - startingLabel.getWidth()) / 2,
 					GAME_HEIGHT / 2 - 30);
 
-			g2d.setFont(new Font("Arial", Font.BOLD, 28));
-			String countText = String.valueOf(countdownNumber);
-			metrics = g2d.getFontMetrics();
-			g2d.drawString(countText,
-					(GAME_WIDTH - metrics.stringWidth(countText)) / 2,
+			countdownDigits.drawNumber(g2d, s.countdownNumber, 1,
+					(GAME_WIDTH - countdownDigits.getWidth(s.countdownNumber, 1)) / 2,
 					GAME_HEIGHT / 2 + 20);
-
-			// Check if it's time to update countdown
-			long currentTime = System.currentTimeMillis();
-			if (currentTime - countdownStartTime >= 1000) {
-				countdownNumber--;
-				countdownStartTime = currentTime;
-				if (countdownNumber < 1) {
-					gameState = GAME_STATE_PLAYING;
-				}
-			}
 		}
 
 		// Draw pause/game over overlay
-		if (gameState == GAME_STATE_PAUSED || gameState == GAME_STATE_GAME_OVER) {
-			g2d.setColor(new Color(0, 0, 0, 150));
-			g2d.fillRect(0, 0, GAME_WIDTH, GAME_HEIGHT);
+		if (s.state == GameState.PAUSED || s.state == GameState.GAME_OVER) {
+			drawOverlay(g2d, s);
 
-			g2d.setColor(Color.WHITE);
-			g2d.setFont(new Font("Arial", Font.BOLD, 36));
-			String message = gameState == GAME_STATE_PAUSED ? "PAUSED"
-					: "GAME OVER - " + (score.getPlayer1Score() > score.getPlayer2Score() ? "Player 1" : "Player 2")
-							+ " Wins!";
-			FontMetrics metrics = g2d.getFontMetrics();
-			g2d.drawString(message,
-					(GAME_WIDTH - metrics.stringWidth(message)) / 2,
+			TextCache.Label message = s.state == GameState.PAUSED ? pausedLabel
+					: s.player1Score > s.player2Score ? player1WinsLabel : player2WinsLabel;
+			message.draw(g2d,
+					(GAME_WIDTH - message.getWidth()) / 2,
 					GAME_HEIGHT / 2);
 
-			g2d.setFont(new Font("Arial", Font.PLAIN, 20));
-			String subMessage = gameState == GAME_STATE_PAUSED ? "Press SPACE to continue"
-					: "Press SPACE to play again";
-			metrics = g2d.getFontMetrics();
-			g2d.drawString(subMessage,
-					(GAME_WIDTH - metrics.stringWidth(subMessage)) / 2,
+			TextCache.Label subMessage = s.state == GameState.PAUSED ? continueLabel
+					: s.online ? quitLabel : playAgainLabel;
+			subMessage.draw(g2d,
+					(GAME_WIDTH - subMessage.getWidth()) / 2,
 					GAME_HEIGHT / 2 + 40);
 		}
+
+		// The match freezes while the other player's inputs are too far behind
+		if (s.state == GameState.PLAYING && s.waiting) {
+			drawNetworkStatus(g2d, s);
+		}
 	}
 
-	public void move() {
-		// move both paddles
-		paddle1.move();
-		paddle2.move();
-		// move the ball
-		ball.move();
+	private void drawNetworkStatus(Graphics2D g2d, RenderState s) {
+		drawOverlay(g2d, s);
+		TextCache.Label status = s.disconnected ? disconnectedLabel : waitingLabel;
+		status.draw(g2d, (GAME_WIDTH - status.getWidth()) / 2, GAME_HEIGHT / 2);
 	}
 
-	public void checkCollision() {
-		// Constants for ball physics
-		final int MAX_VELOCITY = 10;
+	// backdrop for text in the middle of the field
+	private void drawOverlay(Graphics2D g2d, RenderState s) {
+		if (s.quality.gradients()) {
+			g2d.setColor(OVERLAY_COLOR);
+			g2d.fillRect(0, 0, GAME_WIDTH, GAME_HEIGHT);
+		} else {
+			g2d.setColor(OVERLAY_BAND_COLOR);
+			g2d.fillRect(0, OVERLAY_BAND_TOP, GAME_WIDTH, OVERLAY_BAND_HEIGHT);
+		}
+	}
 
-		// Check for collision with top & bottom window edges
-		// if the ball's y-coordinate is less than or equal to 0,
-		// set the ball's y-direction to be the opposite of its current y-velocity
-		if (ball.y <= 0) {
-			ball.setYDirection(-ball.getYVelocity());
+	// apply the queued keys, then advance whatever the current state animates
+	private void tick() {
+		inputQueue.drain(keyHandler);
+		reportInputLatency();
+		if (session != null && state != GameState.PLAYING) {
+			session.poll(); // handshake, and acknowledgements after the match
 		}
+		switch (state) {
+			case MENU -> menuStep();
+			case COUNTDOWN -> countdownStep();
+			case PLAYING -> matchStep();
+			default -> {
+				// paused or over: nothing moves
+			}
+		}
+	}
 
-		// if the ball's y-coordinate is greater than or equal to the game height minus
-		// the ball's diameter,
-		// set the ball's y-direction to be the opposite of its current y-velocity
-		if (ball.y >= GAME_HEIGHT - BALL_DIAMETER) {
-			ball.setYDirection(-ball.getYVelocity());
+	private void menuStep() {
+		menuTicks++;
+		titleGlow += glowIncreasing ? glowStep : -glowStep;
+		if (titleGlow >= 1) {
+			titleGlow = 1;
+			glowIncreasing = false;
+		} else if (titleGlow <= 0) {
+			titleGlow = 0;
+			glowIncreasing = true;
 		}
+	}
+
+	private void countdownStep() {
+		long now = System.nanoTime();
+		if (session != null && session.isWaiting()) {
+			// hold the countdown until both players are connected
+			countdownDeadline = now + COUNTDOWN_SECONDS * NANOS_PER_SECOND;
+		}
+		long remaining = countdownDeadline - now;
+		if (remaining <= 0) {
+			transition(GameState.PLAYING);
+		} else {
+			countdownNumber = (int) ((remaining + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+		}
+	}
 
-		// Check for collision with left paddle
-		if (ball.intersects(paddle1)) {
-			int newXVelocity = Math.min(Math.abs(ball.getXVelocity()) + 1, MAX_VELOCITY);
-			float normalizedRelativeIntersectY = (paddle1.y + (PADDLE_HEIGHT / 2)) - (ball.y + (BALL_DIAMETER / 2));
-			int newYVelocity = (int) (normalizedRelativeIntersectY / (PADDLE_HEIGHT / 2) * MAX_VELOCITY);
-			ball.setVelocity(newXVelocity, newYVelocity);
-			SoundManager.playPaddleHitSound();
+	// advance the match by one tick and react to what happened
+	private void matchStep() {
+		int events = session != null ? networkStep() : localStep();
+		particles.update();
+		float impactX = simulation.getImpactX();
+		float impactY = simulation.getImpactY();
+		if ((events & PongSimulation.EVENT_PADDLE_HIT) != 0) {
+			// pan the hit towards the side of the paddle that was struck
+			float ballCenter = simulation.getBallX() + BALL_DIAMETER / 2f;
+			SoundManager.playPaddleHitSound(ballCenter / GAME_WIDTH * 2 - 1);
+			int color = impactX < GAME_WIDTH / 2 ? PLAYER1_SPARK_COLOR : PLAYER2_SPARK_COLOR;
+			particles.emit(impactX, impactY, 40, 300, 0.5f, color);
+			PongEvents.collision("paddle", impactX, impactY);
+		}
+		if ((events & PongSimulation.EVENT_WALL_BOUNCE) != 0) {
+			particles.emit(impactX, impactY, 15, 150, 0.3f, WALL_SPARK_COLOR);
+			PongEvents.collision("wall", impactX, impactY);
+		}
+		if ((events & PongSimulation.EVENT_POINT) != 0) {
+			// burst on the goal line in the scoring player's color
+			int player = (events & PongSimulation.EVENT_POINT_PLAYER1) != 0 ? 1 : 2;
+			int color = player == 1 ? PLAYER1_SPARK_COLOR : PLAYER2_SPARK_COLOR;
+			particles.emit(impactX, impactY, 300, 600, 1.2f, color);
+			PongEvents.pointScored(player, simulation.getPlayer1Score(), simulation.getPlayer2Score());
+			// paddles are re-centered after a point and stop until a key is pressed again
+			paddle1.clearInput();
+			paddle2.clearInput();
+		}
+		if ((events & PongSimulation.EVENT_GAME_OVER) != 0) {
+			transition(GameState.GAME_OVER);
+		}
+	}
+
+	private int localStep() {
+		int input1 = paddle1.getInput();
+		int input2 = paddle2.getInput();
+		recorder.record(input1, input2);
+		return simulation.step(input1, input2);
+	}
+
+	// game thread only
+	private void applyKey(int keyCode, boolean pressed) {
+		frameRequested = true;
+		if (pressed && keyCode == KeyEvent.VK_F3) {
+			showMetrics = !showMetrics;
+			return;
+		}
+		if (!pressed) {
+			paddle1.keyReleased(keyCode);
+			paddle2.keyReleased(keyCode);
+			return;
+		}
+		switch (state) {
+			case MENU -> menuKey(keyCode);
+			case PLAYING -> {
+				// an online match cannot be paused
+				if (keyCode == KeyEvent.VK_ESCAPE && session == null) {
+					transition(GameState.PAUSED);
+				}
+			}
+			case PAUSED -> {
+				if (keyCode == KeyEvent.VK_SPACE) {
+					transition(GameState.PLAYING);
+				}
+			}
+			case GAME_OVER -> {
+				if (keyCode == KeyEvent.VK_SPACE && session == null) {
+					transition(GameState.PLAYING);
+				} else if (keyCode == KeyEvent.VK_ESCAPE && session != null) {
+					System.exit(0); // an online match can only be left once it is over
+				}
+			}
+			default -> {
+			}
+		}
+		if (state != GameState.MENU) {
+			paddle1.keyPressed(keyCode);
+			paddle2.keyPressed(keyCode);
 		}
+	}
 
-		// Check for collision with right paddle
-		if (ball.intersects(paddle2)) {
-			int newXVelocity = -Math.min(Math.abs(ball.getXVelocity()) + 1, MAX_VELOCITY);
-			float normalizedRelativeIntersectY = (paddle2.y + (PADDLE_HEIGHT / 2)) - (ball.y + (BALL_DIAMETER / 2));
-			int newYVelocity = (int) (normalizedRelativeIntersectY / (PADDLE_HEIGHT / 2) * MAX_VELOCITY);
-			ball.setVelocity(newXVelocity, newYVelocity);
-			SoundManager.playPaddleHitSound();
+	private void menuKey(int keyCode) {
+		switch (keyCode) {
+			case KeyEvent.VK_UP -> {
+				selectedOption = (selectedOption - 1 + 3) % 3;
+				SoundManager.playButtonSound();
+			}
+			case KeyEvent.VK_DOWN -> {
+				selectedOption = (selectedOption + 1) % 3;
+				SoundManager.playButtonSound();
+			}
+			case KeyEvent.VK_ENTER -> {
+				switch (selectedOption) {
+					case MENU_OPTION_PLAY -> transition(GameState.COUNTDOWN);
+					case MENU_OPTION_EXIT -> System.exit(0);
+				}
+			}
 		}
+	}
 
-		// Check for collision with left and right window edges
-		// if the paddle's y-coordinate is less than or equal to 0, set the paddle's
-		// y-coordinate to be 0
-		if (paddle1.y <= 0) {
-			paddle1.y = 0;
+	/**
+	 * Moves to another state and runs its entry actions. Game thread only,
+	 * except for the online countdown started by the constructor.
+	 *
+	 * @throws IllegalStateException if the move is not allowed from the
+	 *                               current state
+	 */
+	private void transition(GameState next) {
+		if (!state.canMoveTo(next)) {
+			throw new IllegalStateException("Cannot move from " + state + " to " + next);
+		}
+		GameState previous = state;
+		state = next;
+		frameRequested = true;
+		switch (next) {
+			case COUNTDOWN -> {
+				countdownNumber = COUNTDOWN_SECONDS;
+				countdownDeadline = System.nanoTime() + COUNTDOWN_SECONDS * NANOS_PER_SECOND;
+				SoundManager.playGameMusic();
+				SoundManager.playBallBounceSound();
+			}
+			case PLAYING -> {
+				if (previous == GameState.GAME_OVER) {
+					// rematch with a new seed
+					gameInitialized = false;
+					initializeGame();
+					SoundManager.playGameMusic();
+				}
+				if (previous != GameState.COUNTDOWN) {
+					SoundManager.playButtonSound();
+				}
+			}
+			case PAUSED -> SoundManager.playButtonSound();
+			case GAME_OVER -> {
+				SoundManager.playGameOverSound();
+				SoundManager.playMenuMusic();
+				byte[] replay = recorder.finish(simulation);
+				if (replay != null) {
+					ReplayRecorder.saveAsync(replay, REPLAY_DIR);
+				}
+			}
+			default -> {
+			}
 		}
+	}
 
-		// if the paddle's y-coordinate is greater than or equal to the game height
-		// minus the paddle's height,
-		// set the paddle's y-coordinate to be the game height minus the paddle's height
-		if (paddle1.y >= (GAME_HEIGHT - PADDLE_HEIGHT)) {
-			paddle1.y = GAME_HEIGHT - PADDLE_HEIGHT; // set the y position of paddle1 to the bottom edge if it goes
-														// below it
+	// with -Dpong.inputStats, print the key-to-tick latency every five seconds
+	private void reportInputLatency() {
+		if (!reportInputLatency || ++ticksSinceInputReport < 5L * scheduler.getTicksPerSecond()) {
+			return;
 		}
-		if (paddle2.y <= 0) {
-			paddle2.y = 0; // set the y position of paddle2 to 0 if it goes above the top edge
+		ticksSinceInputReport = 0;
+		inputLatencyReport.reset();
+		inputQueue.getLatency().drainTo(inputLatencyReport);
+		if (inputLatencyReport.getCount() > 0) {
+			System.out.printf("input to tick: %d keys, p50 %d ms, p99 %d ms, max %d ms, %d dropped%n",
+					inputLatencyReport.getCount(), inputLatencyReport.percentileMicros(50) / 1000,
+					inputLatencyReport.percentileMicros(99) / 1000, inputLatencyReport.getMaxMicros() / 1000,
+					inputQueue.getDropped());
 		}
-		if (paddle2.y >= (GAME_HEIGHT - PADDLE_HEIGHT)) {
-			paddle2.y = GAME_HEIGHT - PADDLE_HEIGHT; // set the y position of paddle2 to the bottom edge if it goes
-														// below it
+	}
+
+	// predict the tick with the local input; the session rolls back if the remote input differs
+	private int networkStep() {
+		int input = Integer.signum(paddle1.getInput() + paddle2.getInput());
+		int events = session.advance(input) & ~PongSimulation.EVENT_GAME_OVER;
+		// a predicted game over may still be rolled back, so only a confirmed one ends the match
+		if (session.isMatchOver()) {
+			events |= PongSimulation.EVENT_GAME_OVER;
+		}
+		return events;
+	}
+
+	// switch the background, sprites and the next snapshots to another tier
+	private void applyQuality(RenderQuality next) {
+		if (next != quality) {
+			quality = next;
+			background.setQuality(next);
+			SpriteAtlas.setQuality(next);
 		}
+	}
 
-		// give player 1 point and and creates new paddles & ball
-		if (ball.x <= 0) {
-			score.incrementPlayer2();
-			newPaddles(); // create new paddles
-			newBall(); // create new ball
+	// record the frame's timings for the overlay and the Flight Recorder, if either is on; render thread only
+	private void recordFrame(PongEvents.Frame event, RenderState s) {
+		if (!s.measured || (!s.showMetrics && event == null)) {
+			recordedTicks = -1; // the next measured frame starts new counts
+			return;
 		}
-		if (ball.x >= GAME_WIDTH - BALL_DIAMETER) {
-			score.incrementPlayer1();
-			newPaddles();
-			newBall();
+		long allocatedBytes = FrameMetrics.threadAllocatedBytes();
+		if (recordedTicks >= 0) {
+			int frameTicks = (int) (s.ticks - recordedTicks);
+			long frameUpdateNanos = s.updateNanos - recordedUpdateNanos;
+			// allocated on both threads since the last recorded frame
+			long allocated = allocatedBytes - lastAllocatedBytes + s.allocatedBytes - recordedAllocatedBytes;
+			if (s.showMetrics) {
+				frameMetrics.record(frameUpdateNanos, frameRenderNanos, framePresentNanos, s.tickJitter, allocated,
+						frameFilledPixels);
+				long now = System.nanoTime();
+				if (now - metricsRefreshed >= METRICS_REFRESH_NANOS) {
+					metricsRefreshed = now;
+					frameMetrics.percentiles(50, metricsP50);
+					frameMetrics.percentiles(99, metricsP99);
+				}
+			}
+			if (event != null && event.shouldCommit()) {
+				event.ticks = frameTicks;
+				event.updateTime = frameUpdateNanos;
+				event.renderTime = frameRenderNanos;
+				event.presentTime = framePresentNanos;
+				event.tickJitter = s.tickJitter;
+				event.allocated = allocated;
+				event.filledPixels = frameFilledPixels;
+				event.quality = s.quality.name();
+				event.commit();
+			}
 		}
+		recordedTicks = s.ticks;
+		recordedUpdateNanos = s.updateNanos;
+		recordedAllocatedBytes = s.allocatedBytes;
+		lastAllocatedBytes = allocatedBytes;
 	}
 
-	private void checkGameOver() {
-		if (score.getPlayer1Score() >= WINNING_SCORE || score.getPlayer2Score() >= WINNING_SCORE) {
-			gameState = GAME_STATE_GAME_OVER;
-			SoundManager.playGameOverSound();
+	/**
+	 * Called by the frame when the window is minimized, restored, focused or
+	 * unfocused. The game loop idles while the window is inactive.
+	 *
+	 * @param active True if the window is visible and focused
+	 */
+	public void setWindowActive(boolean active) {
+		windowActive = active;
+		if (active) {
+			frameRequested = true; // the window may have been covered
 		}
 	}
 
 	@Override
 	public void run() {
-		// game loop
-		long lastTime = System.nanoTime(); // get current time in nanoseconds
-		double amountOfTicks = 60.0; // number of ticks per second
-		double ns = 1000000000 / amountOfTicks; // 1 billion nanoseconds per tick
-		double delta = 0; // time since last tick
-		while (true) {
-			long now = System.nanoTime(); // get current time in nanoseconds
-			delta += (now - lastTime) / ns; // add the elapsed time since last tick
-			lastTime = now;
-			if (delta >= 1) {
-				if (gameState == GAME_STATE_PLAYING) {
-					move(); // move the paddles and ball
-					checkCollision();
-					checkGameOver();
+		// game loop: parks between fixed ticks; every state change happens in a tick
+		scheduler.run(new TickScheduler.Listener() {
+			@Override
+			public void tick() {
+				long start = System.nanoTime();
+				PongEvents.Tick event = new PongEvents.Tick();
+				event.begin();
+				GamePanel.this.tick(); // keys, menu animation, countdown and the match
+				if (event.shouldCommit()) {
+					event.state = state.name();
+					event.commit();
 				}
-				repaint(); // repaint the screen
-				delta--;
+				ticks++;
+				updateNanos += System.nanoTime() - start;
 			}
-		}
+
+			@Override
+			public void frame() {
+				if ((state == GameState.PAUSED || state == GameState.GAME_OVER) && !frameRequested) {
+					return; // nothing on screen moves; keys are still drained by the ticks
+				}
+				frameRequested = false;
+				// hand the state after this tick to the render thread, without waiting for it
+				captureRenderState(snapshots.getWriteBuffer());
+				snapshots.publish();
+				if (renderWaiting) {
+					LockSupport.unpark(renderThread);
+				}
+			}
+		}, () -> windowActive || session != null);
 	}
 
 	public class AL extends KeyAdapter { // inner class for handling keyboard input
 		@Override
 		public void keyPressed(KeyEvent e) {
-			if (gameState == GAME_STATE_START) {
-				switch (e.getKeyCode()) {
-					case KeyEvent.VK_UP -> {
-						selectedOption = (selectedOption - 1 + 3) % 3;
-						SoundManager.playButtonSound();
-					}
-					case KeyEvent.VK_DOWN -> {
-						selectedOption = (selectedOption + 1) % 3;
-						SoundManager.playButtonSound();
-					}
-					case KeyEvent.VK_ENTER -> {
-						switch (selectedOption) {
-							case MENU_OPTION_PLAY -> {
-								gameState = GAME_STATE_COUNTDOWN;
-								countdownNumber = 3;
-								countdownStartTime = System.currentTimeMillis();
-								SoundManager.stopGameMusic();
-								SoundManager.playBallBounceSound();
-							}
-							case MENU_OPTION_EXIT -> System.exit(0);
-						}
-					}
-				}
-				repaint();
-			} else {
-				switch (e.getKeyCode()) {
-					case KeyEvent.VK_ESCAPE -> {
-						if (gameState == GAME_STATE_PLAYING) {
-							gameState = GAME_STATE_PAUSED;
-							SoundManager.playButtonSound();
-						}
-					}
-					case KeyEvent.VK_SPACE -> {
-						if (gameState == GAME_STATE_PAUSED) {
-							gameState = GAME_STATE_PLAYING;
-							SoundManager.playButtonSound();
-						} else if (gameState == GAME_STATE_GAME_OVER) {
-							gameState = GAME_STATE_PLAYING;
-							gameInitialized = false;
-							initializeGame();
-							SoundManager.playButtonSound();
-						}
-					}
-					default -> {
-						paddle1.keyPressed(e);
-						paddle2.keyPressed(e);
-					}
-				}
-			}
+			// every key goes to the game thread, which owns the game state
+			inputQueue.offer(e.getKeyCode(), true, e.getWhen());
 		}
 
 		@Override
-		public void keyReleased(KeyEvent e) { // inner class for handling keyboard input
-			if (gameState == GAME_STATE_PLAYING) {
-				paddle1.keyReleased(e); // call keyReleased method of paddle1
-				paddle2.keyReleased(e); // call keyReleased method of paddle2
+		public void keyReleased(KeyEvent e) {
+			if (Paddle.isPaddleKey(e.getKeyCode())) {
+				inputQueue.offer(e.getKeyCode(), false, e.getWhen());
 			}
 		}
 	}
-}
\ No newline at end of file
+}
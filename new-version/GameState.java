@@ -0,0 +1,37 @@
+/**
+ * States of the game screen and the transitions allowed between them.
+ * The state is owned by the game thread: key events reach it through the
+ * {@link InputQueue} and timed changes such as the end of the countdown are
+ * made in the tick, so a frame only ever sees a state it can draw.
+ */
+public enum GameState {
+	/** Title menu over the animated star field */
+	MENU,
+	/** Counting down to the first serve, or waiting for the other player online */
+	COUNTDOWN,
+	PLAYING,
+	/** Local matches only */
+	PAUSED,
+	GAME_OVER;
+
+	/**
+	 * @param next State to move to
+	 * @return True if the game may move from this state to the next one
+	 */
+	public boolean canMoveTo(GameState next) {
+		return switch (this) {
+			case MENU -> next == COUNTDOWN;
+			case COUNTDOWN -> next == PLAYING;
+			case PLAYING -> next == PAUSED || next == GAME_OVER;
+			case PAUSED -> next == PLAYING;
+			case GAME_OVER -> next == PLAYING; // rematch
+		};
+	}
+
+	/**
+	 * @return True if the ball is in play and drawn
+	 */
+	public boolean showsBall() {
+		return this == PLAYING || this == PAUSED || this == GAME_OVER;
+	}
+}
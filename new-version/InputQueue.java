@@ -0,0 +1,124 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue of key events with one producer and one consumer.
+ * The event dispatch thread offers every paddle key press and release with
+ * its {@link java.awt.event.KeyEvent#getWhen()} timestamp, and the game
+ * thread drains the queue at the start of each tick, so paddle input only
+ * changes inside the tick and in the order the keys were hit.
+ *
+ * Events are stored in preallocated arrays; each side publishes its position
+ * with an ordered write and caches the other side's, so offering and
+ * draining allocate nothing and rarely touch a shared cache line. The time
+ * from each key event to the tick that applied it is recorded in a
+ * {@link LatencyHistogram}.
+ */
+public final class InputQueue {
+
+	/**
+	 * Applies dequeued key events.
+	 */
+	public interface Handler {
+		void key(int keyCode, boolean pressed);
+	}
+
+	private final int capacity;
+	private final int mask;
+	private final int[] keyCodes;
+	private final boolean[] pressed;
+	private final long[] whenMillis;
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	// Next position to write, only advanced by the producer
+	private final AtomicLong tail = new AtomicLong();
+	// Next position to read, only advanced by the consumer
+	private final AtomicLong head = new AtomicLong();
+	private long cachedHead; // producer's view of head
+	private long cachedTail; // consumer's view of tail
+	private volatile long dropped;
+
+	/**
+	 * @param capacity Maximum number of queued events, rounded up to a power
+	 *                 of two
+	 */
+	public InputQueue(int capacity) {
+		this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		mask = this.capacity - 1;
+		keyCodes = new int[this.capacity];
+		pressed = new boolean[this.capacity];
+		whenMillis = new long[this.capacity];
+	}
+
+	/**
+	 * Adds a key event without blocking. Must only be called by the producer
+	 * thread.
+	 *
+	 * @param keyCode    Key code of the event
+	 * @param isPressed  True for a press, false for a release
+	 * @param when       Time the key was hit, as returned by
+	 *                   {@link java.awt.event.KeyEvent#getWhen()}
+	 * @return False if the queue was full and the event was dropped
+	 */
+	public boolean offer(int keyCode, boolean isPressed, long when) {
+		long position = tail.get();
+		if (position - cachedHead >= capacity) {
+			cachedHead = head.get();
+			if (position - cachedHead >= capacity) {
+				dropped++;
+				return false;
+			}
+		}
+		int index = (int) position & mask;
+		keyCodes[index] = keyCode;
+		pressed[index] = isPressed;
+		whenMillis[index] = when;
+		// Publishes the slot to the consumer
+		tail.lazySet(position + 1);
+		return true;
+	}
+
+	/**
+	 * Applies every queued event in order. Must only be called by the
+	 * consumer thread.
+	 *
+	 * @param handler Receives the events
+	 * @return Number of events applied
+	 */
+	public int drain(Handler handler) {
+		long position = head.get();
+		if (position == cachedTail) {
+			cachedTail = tail.get();
+			if (position == cachedTail) {
+				return 0;
+			}
+		}
+		long now = System.currentTimeMillis();
+		int count = 0;
+		for (; position < cachedTail; position++, count++) {
+			int index = (int) position & mask;
+			latency.record((now - whenMillis[index]) * 1_000_000L);
+			handler.key(keyCodes[index], pressed[index]);
+		}
+		// Frees the slots for the producer
+		head.lazySet(position);
+		return count;
+	}
+
+	/**
+	 * @return Time from key events to the tick that applied them
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * @return Number of events dropped because the queue was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+}
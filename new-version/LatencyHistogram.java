@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of durations for percentile reports.
+ * Values are kept in microseconds, exactly below 32 and in 16 buckets per
+ * power of two above that, so a percentile is off by at most 1/16 and
+ * recording never allocates.
+ *
+ * Recording and draining are synchronized so a reporting thread can collect
+ * the histogram of a busy thread; the lock is uncontended between reports.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	private static final int BUCKETS = LINEAR_LIMIT + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long maxMicros;
+
+	/**
+	 * @param nanos Duration to record; negative values count as zero
+	 */
+	public synchronized void record(long nanos) {
+		long micros = Math.max(nanos, 0) / 1000;
+		counts[index(micros)]++;
+		count++;
+		maxMicros = Math.max(maxMicros, micros);
+	}
+
+	/**
+	 * Adds every recorded value to another histogram and clears this one.
+	 *
+	 * @param target Histogram to add to
+	 */
+	public synchronized void drainTo(LatencyHistogram target) {
+		synchronized (target) {
+			for (int i = 0; i < BUCKETS; i++) {
+				target.counts[i] += counts[i];
+			}
+			target.count += count;
+			target.maxMicros = Math.max(target.maxMicros, maxMicros);
+		}
+		reset();
+	}
+
+	public synchronized void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		maxMicros = 0;
+	}
+
+	/**
+	 * @param percentile Percentile between 0 and 100
+	 * @return Upper bound of the bucket holding the percentile, in
+	 *         microseconds, or 0 if nothing was recorded
+	 */
+	public synchronized long percentileMicros(double percentile) {
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return Math.min(upperBound(i), maxMicros);
+			}
+		}
+		return 0;
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getMaxMicros() {
+		return maxMicros;
+	}
+
+	private static int index(long micros) {
+		if (micros < LINEAR_LIMIT) {
+			return (int) micros;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+	}
+
+	private static long upperBound(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Load test client for {@link MatchServer}.
+ * Opens thousands of bot connections from one thread with a NIO selector.
+ * Every bot follows the ball in the states it receives and sends its input
+ * whenever it changes. Prints how many states arrive per second and how
+ * evenly: the gap between two states of the same bot should stay close to
+ * one tick.
+ *
+ * Usage:
+ * <pre>
+ * java LoadGenerator [--host localhost] [--port 7800] [--bots 2000]
+ *     [--seconds 60] [--connectRate 1000] [--report 5]
+ * </pre>
+ */
+public final class LoadGenerator {
+
+	// Bots leave the paddle alone while the ball is this close to its center
+	private static final int DEAD_ZONE = 10;
+	private static final int PADDLE_HEIGHT = PongRules.DEFAULT.paddleHeight();
+
+	private final Selector selector;
+	private final LatencyHistogram stateGaps = new LatencyHistogram();
+	private final ByteBuffer inputBuffer = ByteBuffer.allocate(1);
+	private int connected;
+	private int failed;
+	private long states;
+	private long matchesStarted;
+
+	private LoadGenerator() throws IOException {
+		selector = Selector.open();
+	}
+
+	private void connect(InetSocketAddress address) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		Bot bot = new Bot(channel);
+		if (channel.connect(address)) {
+			connected++;
+			channel.register(selector, SelectionKey.OP_READ, bot);
+		} else {
+			channel.register(selector, SelectionKey.OP_CONNECT, bot);
+		}
+	}
+
+	private void poll(long timeoutMillis) throws IOException {
+		selector.select(timeoutMillis);
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			Bot bot = (Bot) key.attachment();
+			try {
+				if (key.isConnectable()) {
+					bot.channel.finishConnect();
+					key.interestOps(SelectionKey.OP_READ);
+					connected++;
+				} else if (key.isReadable()) {
+					bot.read();
+				}
+			} catch (IOException e) {
+				failed++;
+				key.cancel();
+				bot.channel.close();
+			}
+		}
+	}
+
+	private final class Bot {
+		private final SocketChannel channel;
+		private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+		private int player;
+		private int input;
+		private long lastStateNanos;
+
+		Bot(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		void read() throws IOException {
+			if (channel.read(readBuffer) < 0) {
+				throw new IOException("Server closed the connection");
+			}
+			readBuffer.flip();
+			while (readBuffer.hasRemaining()) {
+				byte type = readBuffer.get(readBuffer.position());
+				int size = type == MatchServer.MSG_START ? MatchServer.START_SIZE : MatchServer.STATE_SIZE;
+				if (readBuffer.remaining() < size) {
+					break;
+				}
+				readBuffer.get();
+				if (type == MatchServer.MSG_START) {
+					player = readBuffer.get();
+					matchesStarted++;
+				} else {
+					onState();
+				}
+			}
+			readBuffer.compact();
+		}
+
+		private void onState() throws IOException {
+			long now = System.nanoTime();
+			if (lastStateNanos != 0) {
+				stateGaps.record(now - lastStateNanos);
+			}
+			lastStateNanos = now;
+			states++;
+
+			readBuffer.getInt(); // tick
+			readBuffer.getShort(); // ball x
+			int ballY = readBuffer.getShort();
+			int paddle1Y = readBuffer.getShort();
+			int paddle2Y = readBuffer.getShort();
+			readBuffer.position(readBuffer.position() + 3); // scores and events
+
+			int center = (player == 1 ? paddle1Y : paddle2Y) + PADDLE_HEIGHT / 2;
+			int target = ballY + PongSimulation.BALL_DIAMETER / 2;
+			int wanted = target < center - DEAD_ZONE ? PongSimulation.INPUT_UP
+					: target > center + DEAD_ZONE ? PongSimulation.INPUT_DOWN : PongSimulation.INPUT_NONE;
+			if (wanted != input) {
+				inputBuffer.clear();
+				inputBuffer.put((byte) wanted).flip();
+				if (channel.write(inputBuffer) == 1) {
+					input = wanted;
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		String host = "localhost";
+		int port = MatchServer.DEFAULT_PORT;
+		int bots = 2000;
+		int seconds = 60;
+		int connectRate = 1000;
+		int reportSeconds = 5;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--host" -> host = value;
+				case "--port" -> port = Integer.parseInt(value);
+				case "--bots" -> bots = Integer.parseInt(value);
+				case "--seconds" -> seconds = Integer.parseInt(value);
+				case "--connectRate" -> connectRate = Integer.parseInt(value);
+				case "--report" -> reportSeconds = Integer.parseInt(value);
+				default -> {
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(2);
+				}
+			}
+		}
+
+		InetSocketAddress address = new InetSocketAddress(host, port);
+		LoadGenerator generator = new LoadGenerator();
+		long start = System.nanoTime();
+		long end = start + seconds * 1_000_000_000L;
+		long reportNanos = reportSeconds * 1_000_000_000L;
+		long nextReport = start + reportNanos;
+		int opened = 0;
+		long lastStates = 0;
+		while (System.nanoTime() - end < 0) {
+			// Ramp up at the connect rate so the server's accept backlog does not overflow
+			long elapsed = System.nanoTime() - start;
+			int due = (int) Math.min(bots, elapsed * connectRate / 1_000_000_000L + 1);
+			for (; opened < due; opened++) {
+				generator.connect(address);
+			}
+			generator.poll(1);
+
+			long now = System.nanoTime();
+			if (now - nextReport >= 0) {
+				LatencyHistogram gaps = new LatencyHistogram();
+				generator.stateGaps.drainTo(gaps);
+				System.out.printf("%d bots connected, %d failed, %d matches started | %.0f states/s | "
+						+ "state gap p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+						generator.connected, generator.failed, generator.matchesStarted,
+						(generator.states - lastStates) / (reportSeconds * 1.0),
+						gaps.percentileMicros(50) / 1000.0, gaps.percentileMicros(99) / 1000.0,
+						gaps.getMaxMicros() / 1000.0);
+				lastStates = generator.states;
+				nextReport += reportNanos;
+			}
+		}
+		generator.selector.close();
+	}
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Plays a bot-vs-bot {@link RollbackSession} match over loopback in one
+ * process, with artificial latency, jitter and loss on both ends, and prints
+ * how often each peer had to roll back and whether the peers ever
+ * disagreed on the state of a confirmed tick. Exits with status 1 on a
+ * desync.
+ *
+ * Usage:
+ * <pre>
+ * java LoopbackMatch [--ticks 3600] [--latency 50] [--jitter 10] [--loss 0.05]
+ *     [--port 7777]
+ * </pre>
+ * Latency and jitter are one-way, in milliseconds, so the default round trip
+ * is about 100 ms.
+ */
+public final class LoopbackMatch {
+
+	// Bots leave the paddle alone while the ball is this close to their aim
+	private static final int DEAD_ZONE = 10;
+	// Ticks between changes of the bots' aim, so they return the ball at angles
+	private static final int AIM_TICKS = 45;
+
+	private final RollbackSession session;
+	private final int ticks;
+	private final TickScheduler scheduler;
+	private volatile boolean done;
+	private LoopbackMatch other;
+
+	private LoopbackMatch(RollbackSession session, int ticks, int ticksPerSecond) {
+		this.session = session;
+		this.ticks = ticks;
+		scheduler = new TickScheduler(ticksPerSecond, TickScheduler.DEFAULT_MAX_CATCH_UP_TICKS);
+	}
+
+	private Thread start(String name) {
+		Thread thread = new Thread(() -> scheduler.run(new TickScheduler.Listener() {
+			@Override
+			public void tick() {
+				if (session.getFrame() < ticks && session.getFailure() == null) {
+					PongSimulation simulation = session.getSimulation();
+					session.advance(botInput(simulation, session.getLocalPlayer(), session.getFrame()));
+					return;
+				}
+				// Keep acknowledging until the other peer has finished too
+				done = true;
+				session.poll();
+				if (other.done || session.getFailure() != null) {
+					scheduler.stop();
+				}
+			}
+
+			@Override
+			public void frame() {
+			}
+		}, () -> true), name);
+		thread.start();
+		return thread;
+	}
+
+	// Follow the ball with a point near the paddle center, from the predicted state
+	private static int botInput(PongSimulation simulation, int player, int frame) {
+		int paddleHeight = simulation.getRules().paddleHeight();
+		int paddleY = player == 1 ? simulation.getPaddle1Y() : simulation.getPaddle2Y();
+		int aim = (frame / AIM_TICKS * 7919 + player * 104729) % paddleHeight - paddleHeight / 2;
+		int center = paddleY + paddleHeight / 2 + aim * 3 / 4;
+		int target = simulation.getBallY() + PongSimulation.BALL_DIAMETER / 2;
+		if (target < center - DEAD_ZONE) {
+			return PongSimulation.INPUT_UP;
+		}
+		if (target > center + DEAD_ZONE) {
+			return PongSimulation.INPUT_DOWN;
+		}
+		return PongSimulation.INPUT_NONE;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int ticks = TickScheduler.DEFAULT_RATE * 60;
+		int latency = 50;
+		int jitter = 10;
+		double loss = 0.05;
+		int port = RollbackSession.DEFAULT_PORT;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--ticks" -> ticks = Integer.parseInt(value);
+				case "--latency" -> latency = Integer.parseInt(value);
+				case "--jitter" -> jitter = Integer.parseInt(value);
+				case "--loss" -> loss = Double.parseDouble(value);
+				case "--port" -> port = Integer.parseInt(value);
+				default -> {
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(2);
+				}
+			}
+		}
+
+		int ticksPerSecond = TickScheduler.DEFAULT_RATE;
+		NetLink.Impairment impairment = new NetLink.Impairment(latency, jitter, loss);
+		System.out.printf("%d ticks over loopback, %d ms +- %d ms each way, %.0f%% loss%n",
+				ticks, latency, jitter, loss * 100);
+		try (RollbackSession host = RollbackSession.host(port, ticksPerSecond, impairment);
+				RollbackSession client = RollbackSession.join(new InetSocketAddress("localhost", port),
+						ticksPerSecond, impairment)) {
+			LoopbackMatch hostMatch = new LoopbackMatch(host, ticks, ticksPerSecond);
+			LoopbackMatch clientMatch = new LoopbackMatch(client, ticks, ticksPerSecond);
+			hostMatch.other = clientMatch;
+			clientMatch.other = hostMatch;
+			Thread hostThread = hostMatch.start("Host");
+			Thread clientThread = clientMatch.start("Client");
+			hostThread.join();
+			clientThread.join();
+
+			System.out.println(host.statsReport());
+			System.out.println(client.statsReport());
+			PongSimulation result = host.getSimulation();
+			System.out.printf("score %d-%d%n", result.getPlayer1Score(), result.getPlayer2Score());
+			if (host.getDesyncs() + client.getDesyncs() > 0 || host.getFailure() != null
+					|| client.getFailure() != null) {
+				System.exit(1);
+			}
+		}
+	}
+}
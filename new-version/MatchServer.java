@@ -0,0 +1,440 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Authoritative server running many Pong matches at once.
+ *
+ * Players connect over TCP and are paired in arrival order. Each match is a
+ * {@link PongSimulation}, so the server plays by exactly the same rules as the
+ * game. One thread owns a NIO selector for accepting connections and reading
+ * inputs; a few shard threads, one per core by default, each tick their share
+ * of the matches at the game's tick rate. After stepping a match the shard
+ * encodes its state once and writes the same bytes to both players, one
+ * write per player and tick. A player whose socket cannot keep up misses
+ * states rather than building a backlog.
+ *
+ * Protocol, all big-endian:
+ * <pre>
+ * client to server: byte input (-1 up, 0 none, 1 down), sent when it changes
+ * server to client: byte MSG_START, byte player (1 left, 2 right)
+ *                   byte MSG_STATE, int tick, short ballX, short ballY,
+ *                   short paddle1Y, short paddle2Y, byte score1, byte score2,
+ *                   byte events
+ * </pre>
+ * A finished match is restarted for the same two players with a new seed.
+ * When a player leaves, the other one waits for a new opponent.
+ *
+ * Every report interval the server prints the number of matches per core and
+ * the tick latency: the time from when a tick was due until every match of
+ * the shard was stepped and sent.
+ *
+ * Usage:
+ * <pre>
+ * java MatchServer [--port 7800] [--shards &lt;cores&gt;] [--report 5]
+ * </pre>
+ */
+public final class MatchServer {
+
+	public static final int DEFAULT_PORT = 7800;
+	public static final byte MSG_START = 1;
+	public static final byte MSG_STATE = 2;
+	public static final int START_SIZE = 2;
+	public static final int STATE_SIZE = 16;
+
+	private static final int ACCEPT_BACKLOG = 4096;
+
+	private final ServerSocketChannel server;
+	private final Selector selector;
+	private final Shard[] shards;
+	private final int ticksPerSecond;
+	private final long tickNanos;
+	// Players whose opponent left, handed back to the selector thread for pairing
+	private final ConcurrentLinkedQueue<Connection> unpaired = new ConcurrentLinkedQueue<>();
+	private final SplittableRandom seeds = new SplittableRandom();
+	private final AtomicInteger connections = new AtomicInteger();
+	private Connection waiting;
+	private volatile boolean running = true;
+
+	/**
+	 * Binds the server socket and starts the shard threads.
+	 *
+	 * @param port           TCP port to listen on
+	 * @param shardCount     Number of tick threads
+	 * @param ticksPerSecond Tick rate of every match
+	 * @throws IOException If the port cannot be bound
+	 */
+	public MatchServer(int port, int shardCount, int ticksPerSecond) throws IOException {
+		this.ticksPerSecond = ticksPerSecond;
+		tickNanos = 1_000_000_000L / ticksPerSecond;
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard();
+			Thread thread = new Thread(shards[i], "Match shard " + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Accepts players and reads their inputs on the calling thread until
+	 * {@link #stop()} is called.
+	 */
+	public void run() throws IOException {
+		while (running) {
+			selector.select();
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				if (!key.isValid()) {
+					continue;
+				}
+				if (key.isAcceptable()) {
+					accept();
+				} else if (key.isReadable()) {
+					((Connection) key.attachment()).read();
+				}
+			}
+			Connection connection;
+			while ((connection = unpaired.poll()) != null) {
+				pair(connection);
+			}
+		}
+		selector.close();
+		server.close();
+	}
+
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			Connection connection = new Connection(channel);
+			channel.register(selector, SelectionKey.OP_READ, connection);
+			connections.incrementAndGet();
+			pair(connection);
+		}
+	}
+
+	// Selector thread only
+	private void pair(Connection connection) {
+		if (connection.closed) {
+			return;
+		}
+		if (waiting == null || waiting.closed) {
+			waiting = connection;
+			return;
+		}
+		Match match = new Match(waiting, connection, seeds.nextLong());
+		waiting = null;
+		Shard emptiest = shards[0];
+		for (Shard shard : shards) {
+			if (shard.matchCount.get() < emptiest.matchCount.get()) {
+				emptiest = shard;
+			}
+		}
+		emptiest.matchCount.incrementAndGet();
+		emptiest.added.add(match);
+	}
+
+	/**
+	 * One player's socket. Inputs are written by the selector thread and read
+	 * by the shard ticking the player's match, which is also the only thread
+	 * writing to the socket.
+	 */
+	private final class Connection {
+		private final SocketChannel channel;
+		private final ByteBuffer readBuffer = ByteBuffer.allocate(64);
+		// Unsent tail of the last message, so messages are never interleaved
+		private final ByteBuffer pending = ByteBuffer.allocate(STATE_SIZE).flip();
+		private volatile int input;
+		private volatile boolean closed;
+		private volatile Match match;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		void read() {
+			try {
+				readBuffer.clear();
+				int read = channel.read(readBuffer);
+				if (read < 0) {
+					close();
+					return;
+				}
+				// Only the latest input matters
+				for (int i = 0; i < read; i++) {
+					int value = readBuffer.get(i);
+					if (value >= PongSimulation.INPUT_UP && value <= PongSimulation.INPUT_DOWN) {
+						input = value;
+					}
+				}
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		/**
+		 * Writes a message without blocking. A message is dropped whole if the
+		 * previous one is still not fully sent.
+		 *
+		 * @return False if the message was dropped
+		 */
+		boolean send(ByteBuffer message) {
+			try {
+				if (pending.hasRemaining()) {
+					channel.write(pending);
+					if (pending.hasRemaining()) {
+						return false;
+					}
+				}
+				channel.write(message);
+				if (message.hasRemaining()) {
+					pending.clear();
+					pending.put(message);
+					pending.flip();
+				}
+				return true;
+			} catch (IOException e) {
+				close();
+				return false;
+			}
+		}
+
+		// Called by the selector thread on EOF and by the shard on a failed write
+		synchronized void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			connections.decrementAndGet();
+			Match current = match;
+			if (current != null) {
+				current.closed = true;
+			}
+			try {
+				channel.close(); // also cancels the key
+			} catch (IOException e) {
+				// already gone
+			}
+		}
+	}
+
+	private final class Match {
+		private final PongSimulation simulation;
+		private final Connection player1;
+		private final Connection player2;
+		// Direct, so writing it to two sockets copies nothing
+		private final ByteBuffer state = ByteBuffer.allocateDirect(STATE_SIZE);
+		private final ByteBuffer start = ByteBuffer.allocate(START_SIZE);
+		private volatile boolean closed;
+		private boolean started;
+		private int tick;
+
+		Match(Connection player1, Connection player2, long seed) {
+			this.player1 = player1;
+			this.player2 = player2;
+			simulation = new PongSimulation(PongRules.DEFAULT, seed, ticksPerSecond);
+			player1.match = this;
+			player2.match = this;
+			// A player may have left while the match was being set up
+			closed = player1.closed || player2.closed;
+		}
+
+		void step(Shard shard) {
+			if (!started) {
+				started = true;
+				sendStart(player1, 1);
+				sendStart(player2, 2);
+			}
+			int events = simulation.step(player1.input, player2.input);
+			tick++;
+			state.clear();
+			state.put(MSG_STATE)
+					.putInt(tick)
+					.putShort((short) simulation.getBallX())
+					.putShort((short) simulation.getBallY())
+					.putShort((short) simulation.getPaddle1Y())
+					.putShort((short) simulation.getPaddle2Y())
+					.put((byte) simulation.getPlayer1Score())
+					.put((byte) simulation.getPlayer2Score())
+					.put((byte) events)
+					.flip();
+			shard.send(player1, state);
+			shard.send(player2, state.rewind());
+			if ((events & PongSimulation.EVENT_GAME_OVER) != 0) {
+				// Rematch straight away
+				simulation.reset(shard.seeds.nextLong());
+				tick = 0;
+				started = false;
+			}
+		}
+
+		private void sendStart(Connection player, int id) {
+			start.clear();
+			start.put(MSG_START).put((byte) id).flip();
+			player.send(start);
+		}
+	}
+
+	/**
+	 * Ticks a share of the matches on its own thread. Matches are added
+	 * through a queue and removed by the shard once a player has left, so the
+	 * match list is only touched by the shard thread.
+	 */
+	private final class Shard implements Runnable {
+		private final ArrayList<Match> matches = new ArrayList<>();
+		private final ConcurrentLinkedQueue<Match> added = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger matchCount = new AtomicInteger();
+		private final LatencyHistogram tickLatency = new LatencyHistogram();
+		private final SplittableRandom seeds = MatchServer.this.seeds.split();
+		private final LongAdder statesSent = new LongAdder();
+		private final LongAdder statesDropped = new LongAdder();
+		private volatile long lateTicks;
+
+		@Override
+		public void run() {
+			long nextTick = System.nanoTime() + tickNanos;
+			while (true) {
+				long now = System.nanoTime();
+				if (nextTick - now > 0) {
+					LockSupport.parkNanos(nextTick - now);
+					continue; // re-check, parkNanos may return early
+				}
+				tick();
+				long done = System.nanoTime();
+				tickLatency.record(done - nextTick);
+				nextTick += tickNanos;
+				if (nextTick - done <= 0) {
+					// A whole tick behind: skip the backlog rather than spiral
+					lateTicks += (done - nextTick) / tickNanos + 1;
+					nextTick = done + tickNanos;
+				}
+			}
+		}
+
+		private void tick() {
+			Match match;
+			while ((match = added.poll()) != null) {
+				matches.add(match);
+			}
+			for (int i = matches.size() - 1; i >= 0; i--) {
+				match = matches.get(i);
+				if (match.closed) {
+					// Swap-remove and let the remaining player find a new opponent
+					matches.set(i, matches.get(matches.size() - 1));
+					matches.remove(matches.size() - 1);
+					matchCount.decrementAndGet();
+					requeue(match.player1);
+					requeue(match.player2);
+					continue;
+				}
+				match.step(this);
+			}
+		}
+
+		private void send(Connection player, ByteBuffer state) {
+			if (player.send(state)) {
+				statesSent.increment();
+			} else {
+				statesDropped.increment();
+			}
+		}
+
+		private void requeue(Connection player) {
+			if (!player.closed) {
+				player.match = null;
+				unpaired.add(player);
+				selector.wakeup();
+			}
+		}
+	}
+
+	/**
+	 * @return One-line report of the load and tick latency since the last
+	 *         call
+	 */
+	private String report(LatencyHistogram merged, long intervalNanos, long[] totals) {
+		int matches = 0;
+		long sent = 0;
+		long dropped = 0;
+		long late = 0;
+		merged.reset();
+		for (Shard shard : shards) {
+			matches += shard.matchCount.get();
+			shard.tickLatency.drainTo(merged);
+			sent += shard.statesSent.sumThenReset();
+			dropped += shard.statesDropped.sumThenReset();
+			late += shard.lateTicks;
+		}
+		int cores = Runtime.getRuntime().availableProcessors();
+		double seconds = intervalNanos / 1e9;
+		String line = String.format("%d players, %d matches (%.0f per core) | tick p50 %.2f ms, p99 %.2f ms, "
+				+ "max %.2f ms, %d late | %.0f states/s, %d dropped",
+				connections.get(), matches, (double) matches / cores,
+				merged.percentileMicros(50) / 1000.0, merged.percentileMicros(99) / 1000.0,
+				merged.getMaxMicros() / 1000.0, late - totals[0], sent / seconds, dropped);
+		totals[0] = late;
+		return line;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int shardCount = Runtime.getRuntime().availableProcessors();
+		int reportSeconds = 5;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--port" -> port = Integer.parseInt(value);
+				case "--shards" -> shardCount = Integer.parseInt(value);
+				case "--report" -> reportSeconds = Integer.parseInt(value);
+				default -> {
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(2);
+				}
+			}
+		}
+
+		int ticksPerSecond = TickScheduler.fromSystemProperties().getTicksPerSecond();
+		MatchServer matchServer = new MatchServer(port, shardCount, ticksPerSecond);
+		System.out.printf("Listening on port %d, %d shards at %d ticks per second%n",
+				port, shardCount, ticksPerSecond);
+
+		long intervalNanos = reportSeconds * 1_000_000_000L;
+		Thread reporter = new Thread(() -> {
+			LatencyHistogram merged = new LatencyHistogram();
+			long[] totals = new long[1];
+			while (true) {
+				LockSupport.parkNanos(intervalNanos);
+				System.out.println(matchServer.report(merged, intervalNanos, totals));
+			}
+		}, "Match server report");
+		reporter.setDaemon(true);
+		reporter.start();
+		matchServer.run();
+	}
+}
@@ -0,0 +1,307 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sound.sampled.*;
+
+/**
+ * Streams looping background music from class path resources.
+ * A background thread reads each track in small chunks and writes them to
+ * its own {@link SourceDataLine}, so memory use does not depend on track
+ * length. Switching tracks crossfades: the old track keeps streaming while
+ * it fades out and the new one fades in. A missing track is reported once
+ * and then plays as silence. With {@code -Dpong.audioStats=true} the memory
+ * held for streaming is printed when the line opens.
+ */
+public final class MusicStreamer implements Runnable {
+    public static final int DEFAULT_FADE_MILLIS = 1000;
+
+    private static final float SAMPLE_RATE = 48000f;
+    private static final int CHANNELS = 2;
+    private static final int BYTES_PER_FRAME = 2 * CHANNELS;
+    private static final int CHUNK_FRAMES = 2048;
+    private static final int LINE_BUFFER_FRAMES = CHUNK_FRAMES * 4;
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    // Tracks already reported as missing, so switching to them again stays quiet
+    private static final Set<String> MISSING_TRACKS = ConcurrentHashMap.newKeySet();
+
+    private final AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+    private final Object lock = new Object();
+    private final boolean reportStats = Boolean.getBoolean("pong.audioStats");
+    // The track fading in or playing, and the one fading out
+    private final Deck current = new Deck();
+    private final Deck previous = new Deck();
+    private final byte[] readBuffer = new byte[CHUNK_FRAMES * BYTES_PER_FRAME];
+    private final float[] mixBuffer = new float[CHUNK_FRAMES * CHANNELS];
+    private final byte[] outputBuffer = new byte[CHUNK_FRAMES * BYTES_PER_FRAME];
+
+    private String requestedTrack;
+    private int requestedFadeMillis;
+    private boolean requestPending;
+    private SourceDataLine line;
+    private Thread thread;
+
+    /**
+     * Fades from the current track to a new one. Does nothing if the track
+     * is already playing.
+     *
+     * @param resource   Class path resource of the track
+     * @param fadeMillis Crossfade length
+     */
+    public void play(String resource, int fadeMillis) {
+        request(resource, fadeMillis);
+    }
+
+    /**
+     * Fades out the current track.
+     *
+     * @param fadeMillis Fade length
+     */
+    public void stop(int fadeMillis) {
+        request(null, fadeMillis);
+    }
+
+    /**
+     * @return Resource of the track playing or fading in, or null
+     */
+    public String getCurrentTrack() {
+        synchronized (lock) {
+            return requestPending ? requestedTrack : current.resource;
+        }
+    }
+
+    /**
+     * @return Bytes of audio held in memory, which stays the same for any
+     *         track length
+     */
+    public int getResidentBytes() {
+        int lineBytes = line == null ? 0 : line.getBufferSize();
+        return readBuffer.length + outputBuffer.length + mixBuffer.length * Float.BYTES
+                + 2 * READ_BUFFER_BYTES + lineBytes;
+    }
+
+    private void request(String resource, int fadeMillis) {
+        synchronized (lock) {
+            requestedTrack = resource;
+            requestedFadeMillis = fadeMillis;
+            requestPending = true;
+            if (thread == null) {
+                thread = new Thread(this, "Music streamer");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, LINE_BUFFER_FRAMES * BYTES_PER_FRAME);
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Music disabled, no audio line: " + e.getMessage());
+            return;
+        }
+        if (reportStats) {
+            System.out.printf("Streaming music with %d KB of audio in memory%n", getResidentBytes() / 1024);
+        }
+
+        while (true) {
+            synchronized (lock) {
+                while (!requestPending && !current.isPlaying() && !previous.isPlaying()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (requestPending) {
+                    requestPending = false;
+                    switchTrack(requestedTrack, requestedFadeMillis);
+                }
+            }
+            streamChunk();
+        }
+    }
+
+    // Called with the lock held
+    private void switchTrack(String resource, int fadeMillis) {
+        int fadeFrames = Math.max(1, (int) (SAMPLE_RATE * fadeMillis / 1000));
+        if (resource != null && resource.equals(current.resource)) {
+            current.fadeTo(1f, fadeFrames);
+            return;
+        }
+        if (resource != null && resource.equals(previous.resource)) {
+            // Switching back before the fade ended, fade the old track in again
+            current.swap(previous);
+            current.fadeTo(1f, fadeFrames);
+            previous.fadeTo(0f, fadeFrames);
+            return;
+        }
+        // Whatever was fading out already is cut; the current track fades out instead
+        previous.close();
+        previous.takeFrom(current);
+        previous.fadeTo(0f, fadeFrames);
+        if (resource != null && current.open(resource, format)) {
+            current.gain = 0f;
+            current.fadeTo(1f, fadeFrames);
+        }
+    }
+
+    private void streamChunk() {
+        Arrays.fill(mixBuffer, 0f);
+        current.mixInto(mixBuffer, readBuffer, format);
+        previous.mixInto(mixBuffer, readBuffer, format);
+        if (previous.isPlaying() && previous.gain == 0f && previous.target == 0f) {
+            previous.close();
+        }
+
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int value = (int) (Math.max(-1f, Math.min(1f, mixBuffer[i])) * 32767);
+            outputBuffer[2 * i] = (byte) value;
+            outputBuffer[2 * i + 1] = (byte) (value >> 8);
+        }
+        // Blocks while the line buffer is full, which paces the thread
+        line.write(outputBuffer, 0, outputBuffer.length);
+    }
+
+    /**
+     * One track being streamed, with its own fade.
+     */
+    private static final class Deck {
+        private String resource;
+        private AudioInputStream stream;
+        private float gain;
+        private float target;
+        private float step;
+
+        boolean isPlaying() {
+            return stream != null;
+        }
+
+        boolean open(String resource, AudioFormat format) {
+            AudioInputStream opened = openStream(resource, format);
+            if (opened == null) {
+                return false;
+            }
+            this.resource = resource;
+            stream = opened;
+            return true;
+        }
+
+        void takeFrom(Deck other) {
+            resource = other.resource;
+            stream = other.stream;
+            gain = other.gain;
+            target = other.target;
+            other.resource = null;
+            other.stream = null;
+        }
+
+        void swap(Deck other) {
+            String otherResource = other.resource;
+            AudioInputStream otherStream = other.stream;
+            float otherGain = other.gain;
+            float otherTarget = other.target;
+            other.takeFrom(this);
+            resource = otherResource;
+            stream = otherStream;
+            gain = otherGain;
+            target = otherTarget;
+        }
+
+        void fadeTo(float target, int frames) {
+            this.target = target;
+            step = Math.abs(target - gain) / frames;
+        }
+
+        void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // nothing left to release
+                }
+            }
+            stream = null;
+            resource = null;
+        }
+
+        // Reads one chunk, looping to the start at the end of the track
+        void mixInto(float[] mix, byte[] buffer, AudioFormat format) {
+            if (stream == null) {
+                return;
+            }
+            int filled = 0;
+            boolean restarted = false;
+            while (filled < buffer.length) {
+                int read;
+                try {
+                    read = stream.read(buffer, filled, buffer.length - filled);
+                } catch (IOException e) {
+                    System.err.println("Error streaming " + resource + ": " + e.getMessage());
+                    read = -1;
+                }
+                if (read > 0) {
+                    filled += read;
+                    restarted = false;
+                } else if (read < 0) {
+                    if (restarted) {
+                        // Reopening gave no audio, the track is empty or unreadable
+                        close();
+                        break;
+                    }
+                    // Reopen and keep filling this chunk so the loop point has no gap
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        // reopened below
+                    }
+                    stream = openStream(resource, format);
+                    restarted = true;
+                    if (stream == null) {
+                        resource = null;
+                        break;
+                    }
+                }
+            }
+
+            int samples = filled / 2;
+            for (int i = 0; i < samples; i++) {
+                if (i % CHANNELS == 0 && gain != target) {
+                    gain = gain < target ? Math.min(target, gain + step) : Math.max(target, gain - step);
+                }
+                short value = (short) ((buffer[2 * i] & 0xFF) | (buffer[2 * i + 1] << 8));
+                mix[i] += value / 32768f * gain;
+            }
+        }
+
+        private static AudioInputStream openStream(String resource, AudioFormat format) {
+            // Tracks in the asset bundle are streamed straight from the mapped file
+            InputStream in = AssetBundle.openResource(resource);
+            if (in == null) {
+                if (MISSING_TRACKS.add(resource)) {
+                    System.err.println("Music track not found: " + resource);
+                }
+                return null;
+            }
+            try {
+                AudioInputStream source = AudioSystem.getAudioInputStream(
+                        new BufferedInputStream(in, READ_BUFFER_BYTES));
+                return source.getFormat().matches(format) ? source : AudioSystem.getAudioInputStream(format, source);
+            } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+                System.err.println("Cannot stream " + resource + ": " + e.getMessage());
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // already failing
+                }
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UDP endpoint for a networked match.
+ * A daemon thread receives datagrams and queues them; the game thread sends
+ * and polls without ever blocking. Incoming packets can be delayed, jittered
+ * and dropped on purpose, so a match over loopback behaves like one over a
+ * real network. The impairment applies to received packets only, so giving
+ * both ends the same settings makes the round trip twice the latency.
+ */
+public final class NetLink implements AutoCloseable {
+
+	/**
+	 * Artificial network conditions applied to received packets.
+	 *
+	 * @param latencyMillis One-way delay added to every packet
+	 * @param jitterMillis  Maximum random deviation from the delay, either way;
+	 *                      packets can arrive out of order
+	 * @param lossRate      Fraction of packets dropped, 0 to 1
+	 */
+	public record Impairment(int latencyMillis, int jitterMillis, double lossRate) {
+		public static final Impairment NONE = new Impairment(0, 0, 0);
+
+		/**
+		 * Reads {@code pong.net.latency}, {@code pong.net.jitter} (both in
+		 * milliseconds) and {@code pong.net.loss} (0 to 1).
+		 */
+		public static Impairment fromSystemProperties() {
+			return new Impairment(Integer.getInteger("pong.net.latency", 0),
+					Integer.getInteger("pong.net.jitter", 0),
+					Double.parseDouble(System.getProperty("pong.net.loss", "0")));
+		}
+	}
+
+	public static final int MAX_PACKET_SIZE = 512;
+
+	private final DatagramChannel channel;
+	private final Impairment impairment;
+	private final DelayQueue<Packet> received = new DelayQueue<>();
+	private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+	private volatile SocketAddress remote;
+	private volatile long dropped;
+
+	/**
+	 * Binds a UDP socket and starts receiving.
+	 *
+	 * @param port       Local port, 0 for any free port
+	 * @param impairment Conditions applied to received packets
+	 * @throws IOException If the socket cannot be bound
+	 */
+	public NetLink(int port, Impairment impairment) throws IOException {
+		this.impairment = impairment;
+		channel = DatagramChannel.open();
+		channel.bind(new InetSocketAddress(port));
+		Thread receiver = new Thread(this::receiveLoop, "Net receive");
+		receiver.setDaemon(true);
+		receiver.start();
+	}
+
+	private void receiveLoop() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+		SplittableRandom random = new SplittableRandom();
+		try {
+			while (true) {
+				buffer.clear();
+				SocketAddress sender = channel.receive(buffer);
+				if (impairment.lossRate() > 0 && random.nextDouble() < impairment.lossRate()) {
+					dropped++;
+					continue;
+				}
+				int delay = impairment.latencyMillis();
+				if (impairment.jitterMillis() > 0) {
+					delay += random.nextInt(-impairment.jitterMillis(), impairment.jitterMillis() + 1);
+				}
+				buffer.flip();
+				byte[] data = new byte[buffer.remaining()];
+				buffer.get(data);
+				received.add(new Packet(sender, data, System.nanoTime() + Math.max(delay, 0) * 1_000_000L));
+			}
+		} catch (ClosedChannelException e) {
+			// closed by close()
+		} catch (IOException e) {
+			System.err.println("Network receive failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Sets the peer that {@link #send} writes to.
+	 *
+	 * @param address Address of the other player
+	 */
+	public void setRemote(SocketAddress address) {
+		remote = address;
+	}
+
+	public SocketAddress getRemote() {
+		return remote;
+	}
+
+	/**
+	 * Sends a packet to the remote peer, if one is set. Send failures are
+	 * treated like packet loss.
+	 *
+	 * @param packet Buffer between its position and limit
+	 */
+	public void send(ByteBuffer packet) {
+		SocketAddress address = remote;
+		if (address == null) {
+			return;
+		}
+		sendBuffer.clear();
+		sendBuffer.put(packet);
+		sendBuffer.flip();
+		try {
+			channel.send(sendBuffer, address);
+		} catch (IOException e) {
+			// UDP gives no delivery guarantee anyway; the protocol resends
+		}
+	}
+
+	/**
+	 * @return The next packet whose artificial delay has passed, or null
+	 */
+	public Packet poll() {
+		return received.poll();
+	}
+
+	/**
+	 * @return The locally bound port
+	 */
+	public int getLocalPort() {
+		try {
+			return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return Packets dropped by the artificial loss
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// nothing left to release
+		}
+	}
+
+	/**
+	 * A received datagram, held back until its artificial delay has passed.
+	 */
+	public static final class Packet implements Delayed {
+		private final SocketAddress sender;
+		private final byte[] data;
+		private final long deliverAtNanos;
+
+		Packet(SocketAddress sender, byte[] data, long deliverAtNanos) {
+			this.sender = sender;
+			this.data = data;
+			this.deliverAtNanos = deliverAtNanos;
+		}
+
+		public SocketAddress getSender() {
+			return sender;
+		}
+
+		public ByteBuffer getData() {
+			return ByteBuffer.wrap(data);
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deliverAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(deliverAtNanos, ((Packet) other).deliverAtNanos);
+		}
+	}
+}
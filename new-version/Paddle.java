@@ -1,22 +1,24 @@
 import java.awt.*;
 import java.awt.event.KeyEvent;
-import java.awt.geom.RoundRectangle2D;
 
 /**
  * Represents a player paddle in the Ping Pong game.
- * Handles paddle movement, input processing, and rendering.
+ * Handles input processing and rendering; the paddle's movement is owned by
+ * {@link PongSimulation}. Key events reach the paddle through the
+ * {@link InputQueue} on the game thread, at the start of a tick.
  */
 public class Paddle extends Rectangle {
   // id = 1 for Player1, id = 2 for Player2.
   private final int id;
-  // How fast the paddle moves up and down when we press keys.
-  private int yVelocity;
-  // Speed of the paddle
-  private static final int SPEED = 10;
+  // Direction the player is asking the paddle to move, one of PongSimulation.INPUT_*
+  private int input;
+  // Area the sprite covered when last drawn, and where it covers now
+  private final Rectangle drawn = new Rectangle();
+  private final Rectangle bounds = new Rectangle();
 
   /**
    * Constructs a new paddle with specified position, dimensions, and player ID.
-   * 
+   *
    * @param x      X-coordinate of the paddle
    * @param y      Y-coordinate of the paddle
    * @param width  Width of the paddle
@@ -31,105 +33,76 @@ public class Paddle extends Rectangle {
   /**
    * Processes keyboard input for paddle movement.
    * Player 1 uses W/S keys, Player 2 uses UP/DOWN arrows.
-   * 
-   * @param e KeyEvent containing the pressed key information
+   *
+   * @param keyCode Key code of the pressed key
    */
-  public void keyPressed(KeyEvent e) {
-    switch (id) {
-      case 1 -> {
-        if (e.getKeyCode() == KeyEvent.VK_W) {
-          setYDirection(-SPEED);
-          move();
-        }
-        if (e.getKeyCode() == KeyEvent.VK_S) {
-          setYDirection(SPEED);
-          move();
-        }
-      }
-      case 2 -> {
-        if (e.getKeyCode() == KeyEvent.VK_UP) {
-          setYDirection(-SPEED);
-          move();
-        }
-        if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-          setYDirection(SPEED);
-          move();
-        }
-      }
+  public void keyPressed(int keyCode) {
+    if (keyCode == upKey()) {
+      input = PongSimulation.INPUT_UP;
+    } else if (keyCode == downKey()) {
+      input = PongSimulation.INPUT_DOWN;
     }
   }
 
   /**
    * Processes key release events to stop paddle movement.
-   * 
-   * @param e KeyEvent containing the released key information
+   *
+   * @param keyCode Key code of the released key
    */
-  public void keyReleased(KeyEvent e) {
-    switch (id) {
-      case 1 -> {
-        if (e.getKeyCode() == KeyEvent.VK_W) {
-          setYDirection(0);
-          move();
-        }
-        if (e.getKeyCode() == KeyEvent.VK_S) {
-          setYDirection(0);
-          move();
-        }
-      }
-      case 2 -> {
-        if (e.getKeyCode() == KeyEvent.VK_UP) {
-          setYDirection(0);
-          move();
-        }
-        if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-          setYDirection(0);
-          move();
-        }
-      }
+  public void keyReleased(int keyCode) {
+    if (keyCode == upKey() || keyCode == downKey()) {
+      input = PongSimulation.INPUT_NONE;
     }
   }
 
-  // Set the vertical direction of player movement
-  public void setYDirection(int yDirection) {
-    yVelocity = yDirection;
+  /**
+   * @param keyCode Key code of a key event
+   * @return True if the key moves either paddle
+   */
+  public static boolean isPaddleKey(int keyCode) {
+    return keyCode == KeyEvent.VK_W || keyCode == KeyEvent.VK_S
+        || keyCode == KeyEvent.VK_UP || keyCode == KeyEvent.VK_DOWN;
+  }
+
+  private int upKey() {
+    return id == 1 ? KeyEvent.VK_W : KeyEvent.VK_UP;
+  }
+
+  private int downKey() {
+    return id == 1 ? KeyEvent.VK_S : KeyEvent.VK_DOWN;
   }
 
   /**
-   * Updates the paddle's position based on its velocity.
+   * @return Current movement input, one of the PongSimulation.INPUT_* constants
    */
-  public void move() {
-    y += yVelocity;
+  public int getInput() {
+    return input;
+  }
+
+  // Stop moving until a key is pressed again
+  public void clearInput() {
+    input = PongSimulation.INPUT_NONE;
   }
 
   /**
-   * Renders the paddle on the screen.
+   * Renders the paddle on the screen using its pre-rendered sprite.
    * Player 1's paddle is blue, Player 2's paddle is red.
-   * 
+   *
    * @param g Graphics context for rendering
    */
   public void draw(Graphics g) {
-    Graphics2D g2d = (Graphics2D) g;
-    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-    // Create gradients for paddles
-    Color mainColor = (id == 1) ? new Color(66, 135, 245) : // Blue for player 1
-        new Color(245, 66, 66); // Red for player 2
-
-    Color brightColor = (id == 1) ? new Color(100, 160, 255) : // Lighter blue
-        new Color(255, 100, 100); // Lighter red
-
-    GradientPaint gradient = new GradientPaint(
-        x, y, mainColor,
-        x + width, y, brightColor);
-
-    g2d.setPaint(gradient);
-
-    // Draw paddle with rounded corners
-    RoundRectangle2D paddle = new RoundRectangle2D.Float(x, y, width, height, 10, 10);
-    g2d.fill(paddle);
+    SpriteAtlas.drawPaddle(g, id, x, y, width, height);
+    SpriteAtlas.paddleBounds(x, y, width, height, drawn);
+  }
 
-    // Add highlight effect
-    g2d.setColor(new Color(255, 255, 255, 50));
-    g2d.fillRoundRect(x + 2, y + 2, width / 2 - 2, height - 4, 8, 8);
+  /**
+   * Reports the area to redraw for the next frame: where the paddle was last
+   * drawn and where it is now.
+   *
+   * @param region Region of the frame to redraw
+   */
+  public void addDamage(DirtyRegion region) {
+    SpriteAtlas.paddleBounds(x, y, width, height, bounds);
+    region.addUnion(drawn, bounds);
   }
-}
\ No newline at end of file
+}
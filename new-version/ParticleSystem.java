@@ -0,0 +1,285 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Short-lived sparks for hits, bounces and points.
+ * Particles live in fixed-capacity primitive arrays: emitting fills the
+ * next free slots and a dead particle is replaced by the last live one, so
+ * the live particles always occupy the front of the arrays and nothing is
+ * allocated after construction. Particles are plotted into the pixels of a
+ * cached translucent image, and only the rectangle they cover is cleared and
+ * drawn onto the frame; that rectangle and the one of the frame before are
+ * what the particles change in the frame.
+ *
+ * Particles advance with the simulation tick on the game thread, which
+ * copies their pixels into a {@link Snapshot} of the frame; the render
+ * thread plots that snapshot. Each side only touches its own fields, so the
+ * system is not synchronized.
+ */
+public final class ParticleSystem {
+
+	private static final int PARTICLE_SIZE = 2;
+
+	private final int capacity;
+	private final int width;
+	private final int height;
+	private final int ticksPerSecond;
+
+	private final float[] x;
+	private final float[] y;
+	private final float[] vx;
+	private final float[] vy;
+	private final int[] life;
+	private final int[] maxLife;
+	private final int[] color;
+	private int count;
+	private int randomState = 0x9E3779B9;
+
+	// Used by draw(), which captures and plots on the calling thread
+	private final Snapshot own;
+
+	private final BufferedImage image;
+	private final int[] pixels;
+	// Rectangle plotted in the last frame, empty if maxX < minX
+	private int minX;
+	private int minY;
+	private int maxX = -1;
+	private int maxY = -1;
+	// Rectangle plotted in the frame before, to erase from the frame
+	private int previousMinX;
+	private int previousMinY;
+	private int previousMaxX = -1;
+	private int previousMaxY = -1;
+
+	/**
+	 * @param capacity       Maximum number of live particles; further emits are
+	 *                       dropped
+	 * @param width          Width of the playing field
+	 * @param height         Height of the playing field
+	 * @param ticksPerSecond Rate at which {@link #update()} is called
+	 */
+	public ParticleSystem(int capacity, int width, int height, int ticksPerSecond) {
+		this.capacity = capacity;
+		this.width = width;
+		this.height = height;
+		this.ticksPerSecond = ticksPerSecond;
+		x = new float[capacity];
+		y = new float[capacity];
+		vx = new float[capacity];
+		vy = new float[capacity];
+		life = new int[capacity];
+		maxLife = new int[capacity];
+		color = new int[capacity];
+		own = new Snapshot(capacity);
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Emits a burst of particles flying out in random directions.
+	 *
+	 * @param originX     X-coordinate of the burst
+	 * @param originY     Y-coordinate of the burst
+	 * @param particles   Number of particles
+	 * @param speed       Maximum speed in pixels per second
+	 * @param lifeSeconds Maximum lifetime in seconds
+	 * @param rgb         Color of the particles
+	 */
+	public void emit(float originX, float originY, int particles, float speed, float lifeSeconds, int rgb) {
+		float speedPerTick = speed / ticksPerSecond;
+		int lifeTicks = Math.max(1, (int) (lifeSeconds * ticksPerSecond));
+		int end = Math.min(capacity, count + particles);
+		for (int i = count; i < end; i++) {
+			// Random direction and speed, so bursts are round rather than square
+			float angle = nextFloat() * (float) (2 * Math.PI);
+			float magnitude = (0.25f + 0.75f * nextFloat()) * speedPerTick;
+			x[i] = originX;
+			y[i] = originY;
+			vx[i] = (float) Math.cos(angle) * magnitude;
+			vy[i] = (float) Math.sin(angle) * magnitude;
+			maxLife[i] = lifeTicks / 2 + (int) (nextFloat() * (lifeTicks - lifeTicks / 2));
+			life[i] = maxLife[i];
+			color[i] = rgb & 0xFFFFFF;
+		}
+		count = end;
+	}
+
+	/**
+	 * Advances every particle by one tick and recycles the dead ones.
+	 */
+	public void update() {
+		int i = 0;
+		while (i < count) {
+			if (--life[i] <= 0) {
+				// Swap-remove: the last live particle takes this slot and is updated next
+				int last = --count;
+				x[i] = x[last];
+				y[i] = y[last];
+				vx[i] = vx[last];
+				vy[i] = vy[last];
+				life[i] = life[last];
+				maxLife[i] = maxLife[last];
+				color[i] = color[last];
+				continue;
+			}
+			x[i] += vx[i];
+			y[i] += vy[i];
+			// A little drag so sparks slow down as they fade
+			vx[i] *= 0.96f;
+			vy[i] *= 0.96f;
+			i++;
+		}
+	}
+
+	/**
+	 * Draws the live particles on top of the frame.
+	 *
+	 * @param g Graphics context for rendering
+	 */
+	public void draw(Graphics g) {
+		capture(own);
+		plot(own);
+		drawPlotted(g);
+	}
+
+	/**
+	 * Copies where each live particle is and its faded color, for drawing a
+	 * frame on another thread.
+	 *
+	 * @param snapshot Receives the particles; its capacity must be at least
+	 *                 this system's
+	 */
+	public void capture(Snapshot snapshot) {
+		int captured = 0;
+		for (int i = 0; i < count; i++) {
+			int px = (int) x[i];
+			int py = (int) y[i];
+			if (px < 0 || py < 0 || px > width - PARTICLE_SIZE || py > height - PARTICLE_SIZE) {
+				continue;
+			}
+			// Fade out over the lifetime; the image is premultiplied
+			int alpha = life[i] * 255 / maxLife[i];
+			int rgb = color[i];
+			snapshot.pixel[captured] = (alpha << 24)
+					| ((((rgb >> 16) & 0xFF) * alpha / 255) << 16)
+					| ((((rgb >> 8) & 0xFF) * alpha / 255) << 8)
+					| ((rgb & 0xFF) * alpha / 255);
+			snapshot.x[captured] = px;
+			snapshot.y[captured] = py;
+			captured++;
+		}
+		snapshot.count = captured;
+	}
+
+	/**
+	 * Plots captured particles for the next frame, replacing the ones of the
+	 * frame before. Drawn by {@link #drawPlotted}.
+	 *
+	 * @param snapshot Particles captured by {@link #capture}
+	 */
+	public void plot(Snapshot snapshot) {
+		previousMinX = minX;
+		previousMinY = minY;
+		previousMaxX = maxX;
+		previousMaxY = maxY;
+
+		// Clear what the previous frame plotted
+		for (int row = minY; row <= maxY; row++) {
+			Arrays.fill(pixels, row * width + minX, row * width + maxX + 1, 0);
+		}
+		minX = width;
+		minY = height;
+		maxX = -1;
+		maxY = -1;
+
+		for (int i = 0; i < snapshot.count; i++) {
+			int px = snapshot.x[i];
+			int py = snapshot.y[i];
+			int pixel = snapshot.pixel[i];
+			int index = py * width + px;
+			pixels[index] = pixel;
+			pixels[index + 1] = pixel;
+			pixels[index + width] = pixel;
+			pixels[index + width + 1] = pixel;
+
+			minX = Math.min(minX, px);
+			minY = Math.min(minY, py);
+			maxX = Math.max(maxX, px + PARTICLE_SIZE - 1);
+			maxY = Math.max(maxY, py + PARTICLE_SIZE - 1);
+		}
+	}
+
+	/**
+	 * Draws the particles plotted by the last {@link #plot} on top of the
+	 * frame; may be called once per redrawn part of the frame.
+	 *
+	 * @param g Graphics context for rendering
+	 */
+	public void drawPlotted(Graphics g) {
+		if (maxX >= minX) {
+			g.drawImage(image, minX, minY, maxX + 1, maxY + 1, minX, minY, maxX + 1, maxY + 1, null);
+		}
+	}
+
+	/**
+	 * Reports the area to redraw after {@link #plot}: where particles were
+	 * plotted in the frame before and where they are now.
+	 *
+	 * @param region Region of the frame to redraw
+	 */
+	public void addDamage(DirtyRegion region) {
+		if (previousMaxX >= previousMinX) {
+			region.add(previousMinX, previousMinY, previousMaxX - previousMinX + 1, previousMaxY - previousMinY + 1);
+		}
+		if (maxX >= minX) {
+			region.add(minX, minY, maxX - minX + 1, maxY - minY + 1);
+		}
+	}
+
+	/**
+	 * Removes all particles.
+	 */
+	public void clear() {
+		count = 0;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The particles of one frame, as plotted: position and premultiplied
+	 * color of each one inside the field.
+	 */
+	public static final class Snapshot {
+		final int[] x;
+		final int[] y;
+		final int[] pixel;
+		int count;
+
+		/**
+		 * @param capacity Maximum number of particles, as the system's
+		 */
+		public Snapshot(int capacity) {
+			x = new int[capacity];
+			y = new int[capacity];
+			pixel = new int[capacity];
+		}
+	}
+
+	// xorshift32, in [0, 1)
+	private float nextFloat() {
+		int r = randomState;
+		r ^= r << 13;
+		r ^= r >>> 17;
+		r ^= r << 5;
+		randomState = r;
+		return (r >>> 8) * 0x1.0p-24f;
+	}
+}
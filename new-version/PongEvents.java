@@ -0,0 +1,143 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder events of the game loop, so a stall in a recording can be
+ * lined up with garbage collections and other JVM events. The events are in
+ * the "Pong" category and recorded with
+ * {@code java -XX:StartFlightRecording=filename=pong.jfr PongGame}; while
+ * no recording is running they cost a disabled check.
+ */
+public final class PongEvents {
+
+	private static final EventType FRAME_TYPE = EventType.getEventType(Frame.class);
+
+	private PongEvents() {
+	}
+
+	@Name("pong.Tick")
+	@Label("Tick")
+	@Category("Pong")
+	@Description("One fixed step of the game state")
+	@StackTrace(false)
+	public static final class Tick extends Event {
+		@Label("State")
+		String state;
+	}
+
+	@Name("pong.Frame")
+	@Label("Frame")
+	@Category("Pong")
+	@Description("Drawing and presenting one frame, with the ticks run before it")
+	@StackTrace(false)
+	public static final class Frame extends Event {
+		@Label("Ticks")
+		int ticks;
+
+		@Label("Update Time")
+		@Timespan
+		long updateTime;
+
+		@Label("Render Time")
+		@Timespan
+		long renderTime;
+
+		@Label("Present Time")
+		@Timespan
+		long presentTime;
+
+		@Label("Tick Jitter")
+		@Timespan
+		long tickJitter;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocated;
+
+		@Label("Filled Pixels")
+		@Description("Pixels of the frame that were redrawn")
+		long filledPixels;
+
+		@Label("Quality")
+		String quality;
+	}
+
+	@Name("pong.Collision")
+	@Label("Collision")
+	@Category("Pong")
+	@Description("The ball hit a paddle or bounced off a wall")
+	@StackTrace(false)
+	public static final class Collision extends Event {
+		@Label("Kind")
+		String kind;
+
+		@Label("X")
+		float x;
+
+		@Label("Y")
+		float y;
+	}
+
+	@Name("pong.PointScored")
+	@Label("Point Scored")
+	@Category("Pong")
+	@StackTrace(false)
+	public static final class PointScored extends Event {
+		@Label("Player")
+		int player;
+
+		@Label("Player 1 Score")
+		int player1Score;
+
+		@Label("Player 2 Score")
+		int player2Score;
+	}
+
+	/**
+	 * @return True if frame events are recorded, checked without creating one
+	 */
+	public static boolean isFrameEnabled() {
+		return FRAME_TYPE.isEnabled();
+	}
+
+	/**
+	 * Records a collision if a recording is running.
+	 *
+	 * @param kind "paddle" or "wall"
+	 * @param x    X-coordinate of the impact
+	 * @param y    Y-coordinate of the impact
+	 */
+	public static void collision(String kind, float x, float y) {
+		Collision event = new Collision();
+		if (event.isEnabled()) {
+			event.kind = kind;
+			event.x = x;
+			event.y = y;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Records a point if a recording is running.
+	 *
+	 * @param player       Player who scored
+	 * @param player1Score Score of player 1 after the point
+	 * @param player2Score Score of player 2 after the point
+	 */
+	public static void pointScored(int player, int player1Score, int player2Score) {
+		PointScored event = new PointScored();
+		if (event.isEnabled()) {
+			event.player = player;
+			event.player1Score = player1Score;
+			event.player2Score = player2Score;
+			event.commit();
+		}
+	}
+}
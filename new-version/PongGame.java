@@ -1,11 +1,42 @@
+import java.io.IOException;
 import javax.swing.SwingUtilities;
 
 /**
  * Main entry point for the Ping Pong game.
  * Initializes the game frame on the Event Dispatch Thread for thread safety.
+ *
+ * Without arguments both players share the keyboard. For an online match one
+ * player runs {@code PongGame --host [port]} and the other
+ * {@code PongGame --join host[:port]}; see {@link RollbackSession}.
  */
 public class PongGame {
   public static void main(String[] args) {
-    SwingUtilities.invokeLater(() -> new GameFrame());
+    RollbackSession session = openSession(args);
+    SwingUtilities.invokeLater(() -> new GameFrame(session));
   }
-}
\ No newline at end of file
+
+  private static RollbackSession openSession(String[] args) {
+    if (args.length == 0) {
+      return null;
+    }
+    int ticksPerSecond = TickScheduler.fromSystemProperties().getTicksPerSecond();
+    NetLink.Impairment impairment = NetLink.Impairment.fromSystemProperties();
+    try {
+      if (args[0].equals("--host")) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : RollbackSession.DEFAULT_PORT;
+        RollbackSession session = RollbackSession.host(port, ticksPerSecond, impairment);
+        System.out.println("Waiting for a player on port " + session.getLocalPort());
+        return session;
+      }
+      if (args[0].equals("--join") && args.length > 1) {
+        return RollbackSession.join(RollbackSession.parseAddress(args[1]), ticksPerSecond, impairment);
+      }
+    } catch (IOException | NumberFormatException e) {
+      System.err.println("Cannot start the online match: " + e.getMessage());
+      System.exit(1);
+    }
+    System.err.println("Usage: java PongGame [--host [port] | --join host[:port]]");
+    System.exit(2);
+    return null;
+  }
+}
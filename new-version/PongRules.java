@@ -0,0 +1,27 @@
+/**
+ * Tunable rules of a Pong match.
+ * The defaults are the values the game is played with; other values are
+ * used to explore their effect on match and rally length, see
+ * {@link BalancingRunner}. Speeds are per tick at
+ * {@link TickScheduler#DEFAULT_RATE} whatever rate the game runs at.
+ *
+ * @param maxVelocity  Maximum horizontal ball speed after paddle hits, which
+ *                     also scales the vertical speed, in pixels per tick
+ * @param paddleHeight Height of both paddles, in pixels
+ * @param paddleSpeed  Paddle speed while a key is held, in pixels per tick
+ * @param initialSpeed Horizontal ball speed at the serve, in pixels per tick
+ * @param winningScore Points needed to win the match
+ */
+public record PongRules(int maxVelocity, int paddleHeight, int paddleSpeed, int initialSpeed, int winningScore) {
+
+	public static final PongRules DEFAULT = new PongRules(10, 100, 10, 2, 5);
+
+	public PongRules {
+		if (maxVelocity < 1 || paddleSpeed < 1 || initialSpeed < 1 || winningScore < 1) {
+			throw new IllegalArgumentException("Speeds and winning score must be positive");
+		}
+		if (paddleHeight < 2 || paddleHeight > PongSimulation.GAME_HEIGHT) {
+			throw new IllegalArgumentException("Paddle height out of range: " + paddleHeight);
+		}
+	}
+}
@@ -0,0 +1,531 @@
+import java.util.Random;
+
+/**
+ * Headless simulation of a Pong match.
+ * Owns the ball, paddle and score state and advances it one fixed tick at a
+ * time. It has no AWT, Swing or sound dependencies, so matches can run
+ * without a window and faster than real time. Callers react to the events
+ * returned by {@link #step(int, int)}, e.g. to play sounds. The tunable
+ * constants come from {@link PongRules}.
+ *
+ * Ball collisions are continuous: within a tick the ball is swept along its
+ * velocity and bounces at the exact time it touches a wall or a paddle, so it
+ * cannot tunnel through a paddle however fast it moves, and several bounces
+ * can happen in one tick.
+ *
+ * The rules' speeds are per tick at {@link TickScheduler#DEFAULT_RATE}. At a
+ * higher tick rate each tick covers only its share of that step, so the
+ * ball and paddles move just as fast in real time at any rate.
+ *
+ * The whole state, including the serve random generator, can be copied into
+ * a {@link Snapshot} and restored from it, so a networked match can rewind
+ * and re-simulate ticks whose remote input turned out to be different.
+ *
+ * Not thread-safe; a simulation must be stepped from a single thread.
+ */
+public final class PongSimulation {
+
+	// constants for game width, height, ball and paddle dimensions
+	public static final int GAME_WIDTH = 1000;
+	public static final int GAME_HEIGHT = (int) (GAME_WIDTH * (0.55555));
+	public static final int BALL_DIAMETER = 20;
+	public static final int PADDLE_WIDTH = 25;
+
+	// Paddle inputs accepted by step()
+	public static final int INPUT_UP = -1;
+	public static final int INPUT_NONE = 0;
+	public static final int INPUT_DOWN = 1;
+
+	// Event flags returned by step()
+	public static final int EVENT_WALL_BOUNCE = 1;
+	public static final int EVENT_PADDLE_HIT = 1 << 1;
+	public static final int EVENT_POINT_PLAYER1 = 1 << 2;
+	public static final int EVENT_POINT_PLAYER2 = 1 << 3;
+	public static final int EVENT_GAME_OVER = 1 << 4;
+	public static final int EVENT_POINT = EVENT_POINT_PLAYER1 | EVENT_POINT_PLAYER2;
+
+	private static final int PADDLE1_X = 0;
+	private static final int PADDLE2_X = GAME_WIDTH - PADDLE_WIDTH;
+	private static final int BALL_MAX_Y = GAME_HEIGHT - BALL_DIAMETER;
+
+	// Bounces resolved per tick before the rest of the tick is dropped,
+	// e.g. when the ball is wedged between a paddle and a wall
+	private static final int MAX_BOUNCES_PER_TICK = 8;
+
+	// What the ball hit first during the current sweep
+	private static final int HIT_NONE = 0;
+	private static final int HIT_TOP = 1;
+	private static final int HIT_BOTTOM = 2;
+	private static final int HIT_PADDLE1 = 3;
+	private static final int HIT_PADDLE2 = 4;
+
+	// java.util.Random's generator, inlined so its state can be snapshotted
+	private static final long RANDOM_MULTIPLIER = 0x5DEECE66DL;
+	private static final long RANDOM_ADDEND = 0xBL;
+	private static final long RANDOM_MASK = (1L << 48) - 1;
+
+	private final PongRules rules;
+	private final int maxVelocity;
+	private final int paddleHeight;
+	private final int paddleSpeed;
+	private final int initialSpeed;
+	private final int winningScore;
+	// Ticks per rules step, and the tick within the current step
+	private final int ticksPerStep;
+	private int stepTick;
+
+	private long randomSeed;
+	// Ball position is sub-pixel so bounces land at the exact time of impact
+	private double ballX;
+	private double ballY;
+	private int ballXVelocity;
+	private int ballYVelocity;
+	private int paddle1Y;
+	private int paddle2Y;
+	private int player1Score;
+	private int player2Score;
+	// Where the ball touched a wall, a paddle or a goal line last, for effects
+	private float impactX;
+	private float impactY;
+
+	/**
+	 * Constructs a simulation with a freshly served ball and zero score,
+	 * seeded randomly.
+	 */
+	public PongSimulation() {
+		this(new Random().nextLong());
+	}
+
+	/**
+	 * Constructs a simulation with a freshly served ball and zero score.
+	 * Two simulations with the same seed fed the same inputs stay identical.
+	 *
+	 * @param seed Seed for the serve directions
+	 */
+	public PongSimulation(long seed) {
+		this(PongRules.DEFAULT, seed);
+	}
+
+	/**
+	 * Constructs a simulation playing by the given rules.
+	 *
+	 * @param rules Tunable rules of the match
+	 * @param seed  Seed for the serve directions
+	 */
+	public PongSimulation(PongRules rules, long seed) {
+		this(rules, seed, TickScheduler.DEFAULT_RATE);
+	}
+
+	/**
+	 * Constructs a simulation playing by the given rules, stepped at the given
+	 * tick rate.
+	 *
+	 * @param rules          Tunable rules of the match
+	 * @param seed           Seed for the serve directions
+	 * @param ticksPerSecond Rate at which {@link #step(int, int)} is called, a
+	 *                       multiple of {@link TickScheduler#DEFAULT_RATE}
+	 */
+	public PongSimulation(PongRules rules, long seed, int ticksPerSecond) {
+		if (ticksPerSecond < TickScheduler.DEFAULT_RATE || ticksPerSecond % TickScheduler.DEFAULT_RATE != 0) {
+			throw new IllegalArgumentException("Unsupported tick rate: " + ticksPerSecond);
+		}
+		this.rules = rules;
+		ticksPerStep = ticksPerSecond / TickScheduler.DEFAULT_RATE;
+		maxVelocity = rules.maxVelocity();
+		paddleHeight = rules.paddleHeight();
+		paddleSpeed = rules.paddleSpeed();
+		initialSpeed = rules.initialSpeed();
+		winningScore = rules.winningScore();
+		setRandomSeed(seed);
+		reset();
+	}
+
+	/**
+	 * Reseeds the simulation and starts a new match.
+	 *
+	 * @param seed Seed for the serve directions
+	 */
+	public void reset(long seed) {
+		setRandomSeed(seed);
+		reset();
+	}
+
+	/**
+	 * Starts a new match: serves a new ball, centers the paddles and resets
+	 * the score.
+	 */
+	public void reset() {
+		newBall();
+		newPaddles();
+		player1Score = 0;
+		player2Score = 0;
+		stepTick = 0;
+	}
+
+	// serve a new ball from the center in a random direction
+	private void newBall() {
+		ballXVelocity = (nextRandom(1) != 0 ? 1 : -1) * initialSpeed;
+		ballYVelocity = (int) ((4L * nextRandom(31)) >> 31) - 2; // Random value between -2 and 1
+		ballX = (GAME_WIDTH / 2) - (BALL_DIAMETER / 2);
+		ballY = (GAME_HEIGHT / 2) - (BALL_DIAMETER / 2);
+	}
+
+	// Same sequence as new Random(seed), so replays recorded with it stay valid
+	private void setRandomSeed(long seed) {
+		randomSeed = (seed ^ RANDOM_MULTIPLIER) & RANDOM_MASK;
+	}
+
+	private int nextRandom(int bits) {
+		randomSeed = (randomSeed * RANDOM_MULTIPLIER + RANDOM_ADDEND) & RANDOM_MASK;
+		return (int) (randomSeed >>> (48 - bits));
+	}
+
+	private void newPaddles() {
+		paddle1Y = (GAME_HEIGHT / 2) - (paddleHeight / 2);
+		paddle2Y = (GAME_HEIGHT / 2) - (paddleHeight / 2);
+	}
+
+	/**
+	 * Moves a paddle outside the tick by one step per key press, the way key
+	 * presses used to move it; only needed to play back logged nudges. The
+	 * position is not clamped until the next {@link #step(int, int)}.
+	 *
+	 * @param id    Player identifier (1 for left paddle, 2 for right paddle)
+	 * @param steps Signed number of steps, negative to move up
+	 */
+	void nudgePaddle(int id, int steps) {
+		if (id == 1) {
+			paddle1Y += steps * paddleSpeed;
+		} else {
+			paddle2Y += steps * paddleSpeed;
+		}
+	}
+
+	/**
+	 * Advances the match by one tick.
+	 *
+	 * @param input1 Input of player 1, one of the {@code INPUT_*} constants
+	 * @param input2 Input of player 2, one of the {@code INPUT_*} constants
+	 * @return Bitwise OR of the {@code EVENT_*} flags raised during the tick
+	 */
+	public int step(int input1, int input2) {
+		// move both paddles by this tick's whole-pixel share of the step and keep them inside the window
+		int distance = paddleSpeed * (stepTick + 1) / ticksPerStep - paddleSpeed * stepTick / ticksPerStep;
+		stepTick = stepTick + 1 == ticksPerStep ? 0 : stepTick + 1;
+		paddle1Y = clampPaddle(paddle1Y + input1 * distance);
+		paddle2Y = clampPaddle(paddle2Y + input2 * distance);
+
+		// sweep the ball against the walls and the paddles' new positions
+		int events = moveBall();
+		events |= checkGoal();
+		if (isGameOver()) {
+			events |= EVENT_GAME_OVER;
+		}
+		return events;
+	}
+
+	private int moveBall() {
+		int events = 0;
+		double remaining = 1.0 / ticksPerStep; // fraction of the rules step still to simulate
+
+		for (int bounce = 0; bounce < MAX_BOUNCES_PER_TICK && remaining > 0; bounce++) {
+			double hitTime = remaining;
+			int hit = HIT_NONE;
+
+			// Time until the ball reaches the top or bottom window edge
+			if (ballYVelocity < 0) {
+				double t = -ballY / ballYVelocity;
+				if (t < hitTime) {
+					hitTime = Math.max(t, 0);
+					hit = HIT_TOP;
+				}
+			} else if (ballYVelocity > 0) {
+				double t = (BALL_MAX_Y - ballY) / ballYVelocity;
+				if (t < hitTime) {
+					hitTime = Math.max(t, 0);
+					hit = HIT_BOTTOM;
+				}
+			}
+
+			// Only the paddle the ball is moving towards can be hit
+			if (ballXVelocity < 0) {
+				double t = timeOfImpact(PADDLE1_X, paddle1Y);
+				if (t < hitTime) {
+					hitTime = t;
+					hit = HIT_PADDLE1;
+				}
+			} else if (ballXVelocity > 0) {
+				double t = timeOfImpact(PADDLE2_X, paddle2Y);
+				if (t < hitTime) {
+					hitTime = t;
+					hit = HIT_PADDLE2;
+				}
+			}
+
+			ballX += ballXVelocity * hitTime;
+			ballY += ballYVelocity * hitTime;
+			remaining -= hitTime;
+
+			switch (hit) {
+				case HIT_TOP, HIT_BOTTOM -> {
+					setImpact(ballX + BALL_DIAMETER / 2.0, hit == HIT_TOP ? 0 : GAME_HEIGHT);
+					ballYVelocity = -ballYVelocity;
+					events |= EVENT_WALL_BOUNCE;
+				}
+				case HIT_PADDLE1 -> {
+					setImpact(PADDLE1_X + PADDLE_WIDTH, ballY + BALL_DIAMETER / 2.0);
+					bounceOffPaddle(paddle1Y, 1);
+					events |= EVENT_PADDLE_HIT;
+				}
+				case HIT_PADDLE2 -> {
+					setImpact(PADDLE2_X, ballY + BALL_DIAMETER / 2.0);
+					bounceOffPaddle(paddle2Y, -1);
+					events |= EVENT_PADDLE_HIT;
+				}
+				default -> remaining = 0;
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Swept AABB test of the moving ball against a paddle: a ray from the
+	 * ball's corner against the paddle grown by the ball's size.
+	 *
+	 * @return Time, in rules steps, at which the ball first touches the paddle,
+	 *         0 if it already overlaps it, or infinity if it misses
+	 */
+	private double timeOfImpact(int paddleX, int paddleY) {
+		double minX = paddleX - BALL_DIAMETER;
+		double maxX = paddleX + PADDLE_WIDTH;
+		double minY = paddleY - BALL_DIAMETER;
+		double maxY = paddleY + paddleHeight;
+
+		double entry;
+		double exit;
+		if (ballXVelocity > 0) {
+			entry = (minX - ballX) / ballXVelocity;
+			exit = (maxX - ballX) / ballXVelocity;
+		} else {
+			entry = (maxX - ballX) / ballXVelocity;
+			exit = (minX - ballX) / ballXVelocity;
+		}
+
+		if (ballYVelocity > 0) {
+			entry = Math.max(entry, (minY - ballY) / ballYVelocity);
+			exit = Math.min(exit, (maxY - ballY) / ballYVelocity);
+		} else if (ballYVelocity < 0) {
+			entry = Math.max(entry, (maxY - ballY) / ballYVelocity);
+			exit = Math.min(exit, (minY - ballY) / ballYVelocity);
+		} else if (ballY <= minY || ballY >= maxY) {
+			return Double.POSITIVE_INFINITY; // moving flat, beside the paddle
+		}
+
+		// Touching edges do not count, as with Rectangle.intersects()
+		if (entry >= exit || exit <= 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.max(entry, 0);
+	}
+
+	// send the ball back faster, steeper the further from the paddle center it hit
+	private void bounceOffPaddle(int paddleY, int direction) {
+		int newXVelocity = direction * Math.min(Math.abs(ballXVelocity) + 1, maxVelocity);
+		float normalizedRelativeIntersectY = (float) ((paddleY + (paddleHeight / 2)) - (ballY + (BALL_DIAMETER / 2)));
+		ballYVelocity = (int) (normalizedRelativeIntersectY / (paddleHeight / 2) * maxVelocity);
+		ballXVelocity = newXVelocity;
+	}
+
+	private int checkGoal() {
+		int events = 0;
+
+		// give a point to the other player and serve new paddles & ball
+		if (ballX <= 0) {
+			setImpact(0, ballY + BALL_DIAMETER / 2.0);
+			player2Score++;
+			newPaddles();
+			newBall();
+			events |= EVENT_POINT_PLAYER2;
+		}
+		if (ballX >= GAME_WIDTH - BALL_DIAMETER) {
+			setImpact(GAME_WIDTH, ballY + BALL_DIAMETER / 2.0);
+			player1Score++;
+			newPaddles();
+			newBall();
+			events |= EVENT_POINT_PLAYER1;
+		}
+		return events;
+	}
+
+	private void setImpact(double x, double y) {
+		impactX = (float) x;
+		impactY = (float) y;
+	}
+
+	private int clampPaddle(int y) {
+		if (y <= 0) {
+			return 0;
+		}
+		if (y >= GAME_HEIGHT - paddleHeight) {
+			return GAME_HEIGHT - paddleHeight;
+		}
+		return y;
+	}
+
+	/**
+	 * @return True once either player has reached the winning score
+	 */
+	public boolean isGameOver() {
+		return player1Score >= winningScore || player2Score >= winningScore;
+	}
+
+	public PongRules getRules() {
+		return rules;
+	}
+
+	/**
+	 * Hashes the complete match state, for checking that two simulations
+	 * (e.g. a replay and the original match) are in the same state.
+	 *
+	 * @return Hash of the ball, paddle and score state
+	 */
+	public long checksum() {
+		return checksum(ballX, ballY, ballXVelocity, ballYVelocity, paddle1Y, paddle2Y, player1Score, player2Score);
+	}
+
+	private static long checksum(double ballX, double ballY, int ballXVelocity, int ballYVelocity,
+			int paddle1Y, int paddle2Y, int player1Score, int player2Score) {
+		long hash = Double.doubleToLongBits(ballX);
+		hash = hash * 31 + Double.doubleToLongBits(ballY);
+		hash = hash * 31 + ballXVelocity;
+		hash = hash * 31 + ballYVelocity;
+		hash = hash * 31 + paddle1Y;
+		hash = hash * 31 + paddle2Y;
+		hash = hash * 31 + player1Score;
+		hash = hash * 31 + player2Score;
+		return hash;
+	}
+
+	/**
+	 * Copies the complete match state into a snapshot.
+	 *
+	 * @param snapshot Snapshot to overwrite
+	 */
+	public void save(Snapshot snapshot) {
+		snapshot.randomSeed = randomSeed;
+		snapshot.stepTick = stepTick;
+		snapshot.ballX = ballX;
+		snapshot.ballY = ballY;
+		snapshot.ballXVelocity = ballXVelocity;
+		snapshot.ballYVelocity = ballYVelocity;
+		snapshot.paddle1Y = paddle1Y;
+		snapshot.paddle2Y = paddle2Y;
+		snapshot.player1Score = player1Score;
+		snapshot.player2Score = player2Score;
+		snapshot.impactX = impactX;
+		snapshot.impactY = impactY;
+	}
+
+	/**
+	 * Puts the match back into a saved state. The snapshot must come from a
+	 * simulation with the same rules.
+	 *
+	 * @param snapshot Snapshot written by {@link #save(Snapshot)}
+	 */
+	public void restore(Snapshot snapshot) {
+		randomSeed = snapshot.randomSeed;
+		stepTick = snapshot.stepTick;
+		ballX = snapshot.ballX;
+		ballY = snapshot.ballY;
+		ballXVelocity = snapshot.ballXVelocity;
+		ballYVelocity = snapshot.ballYVelocity;
+		paddle1Y = snapshot.paddle1Y;
+		paddle2Y = snapshot.paddle2Y;
+		player1Score = snapshot.player1Score;
+		player2Score = snapshot.player2Score;
+		impactX = snapshot.impactX;
+		impactY = snapshot.impactY;
+	}
+
+	/**
+	 * @return X-coordinate of the point where the ball last touched a wall, a
+	 *         paddle or a goal line; meaningful when {@link #step} returned
+	 *         the matching event
+	 */
+	public float getImpactX() {
+		return impactX;
+	}
+
+	/**
+	 * @return Y-coordinate of the point where the ball last touched a wall, a
+	 *         paddle or a goal line
+	 */
+	public float getImpactY() {
+		return impactY;
+	}
+
+	/**
+	 * @return X-coordinate of the ball, rounded to whole pixels
+	 */
+	public int getBallX() {
+		return (int) Math.round(ballX);
+	}
+
+	/**
+	 * @return Y-coordinate of the ball, rounded to whole pixels
+	 */
+	public int getBallY() {
+		return (int) Math.round(ballY);
+	}
+
+	public int getBallXVelocity() {
+		return ballXVelocity;
+	}
+
+	public int getBallYVelocity() {
+		return ballYVelocity;
+	}
+
+	public int getPaddle1Y() {
+		return paddle1Y;
+	}
+
+	public int getPaddle2Y() {
+		return paddle2Y;
+	}
+
+	public int getPlayer1Score() {
+		return player1Score;
+	}
+
+	public int getPlayer2Score() {
+		return player2Score;
+	}
+
+	/**
+	 * Copy of a simulation's state. Snapshots are mutable and meant to be
+	 * allocated once and overwritten, e.g. in a ring of past ticks.
+	 */
+	public static final class Snapshot {
+		private long randomSeed;
+		private int stepTick;
+		private double ballX;
+		private double ballY;
+		private int ballXVelocity;
+		private int ballYVelocity;
+		private int paddle1Y;
+		private int paddle2Y;
+		private int player1Score;
+		private int player2Score;
+		private float impactX;
+		private float impactY;
+
+		/**
+		 * @return The {@link PongSimulation#checksum()} of the saved state
+		 */
+		public long checksum() {
+			return PongSimulation.checksum(ballX, ballY, ballXVelocity, ballYVelocity, paddle1Y, paddle2Y,
+					player1Score, player2Score);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+import java.util.Locale;
+
+/**
+ * Picks the {@link RenderQuality} tier from the measured time spent drawing
+ * each frame. Frames are judged in windows of {@link #WINDOW_FRAMES}: if
+ * more than a few frames of a window went over the budget, the governor
+ * steps down one tier at once. It only steps back up after several windows
+ * in a row where every frame stayed well under the budget, and waits twice
+ * as long before the next try whenever a step up had to be undone right
+ * away, so the tier does not flip back and forth.
+ *
+ * The budget is read from the {@code pong.renderBudgetMs} system property
+ * and defaults to two thirds of the tick interval, leaving the rest for the
+ * ticks and presenting. {@code pong.quality} pins a tier ({@code high},
+ * {@code medium}, {@code low} or {@code minimal}) instead.
+ */
+public final class QualityGovernor {
+
+	private static final int WINDOW_FRAMES = 30;
+	// A window with more frames over the budget than this steps down
+	private static final int MAX_SLOW_FRAMES = 3;
+	// Stepping up needs every frame under this share of the budget
+	private static final double HEADROOM = 0.6;
+	private static final int MIN_UPGRADE_WINDOWS = 4;
+	private static final int MAX_UPGRADE_WINDOWS = 64;
+	// Frames ignored at startup, while the JIT compiles the draw code
+	private static final int WARMUP_FRAMES = 120;
+
+	private final long budgetNanos;
+	private final long headroomNanos;
+	private final boolean adaptive;
+	private RenderQuality quality;
+
+	private int warmupFrames = WARMUP_FRAMES;
+	private int frames;
+	private int slowFrames;
+	private int tightFrames;
+	private int calmWindows;
+	private int upgradeWindows = MIN_UPGRADE_WINDOWS;
+	private int windowsSinceUpgrade = Integer.MAX_VALUE;
+
+	/**
+	 * @param budgetNanos Time a frame may spend drawing
+	 * @param initial     Tier to start at
+	 * @param adaptive    False to keep the initial tier
+	 */
+	public QualityGovernor(long budgetNanos, RenderQuality initial, boolean adaptive) {
+		if (budgetNanos <= 0) {
+			throw new IllegalArgumentException("budgetNanos must be positive");
+		}
+		this.budgetNanos = budgetNanos;
+		this.headroomNanos = (long) (budgetNanos * HEADROOM);
+		this.quality = initial;
+		this.adaptive = adaptive;
+	}
+
+	/**
+	 * Creates a governor configured by {@code pong.renderBudgetMs} and
+	 * {@code pong.quality}.
+	 *
+	 * @param ticksPerSecond Tick rate, which sets the default budget
+	 */
+	public static QualityGovernor fromSystemProperties(int ticksPerSecond) {
+		long budgetNanos = 2_000_000_000L / (3L * ticksPerSecond);
+		String budget = System.getProperty("pong.renderBudgetMs");
+		if (budget != null) {
+			try {
+				double millis = Double.parseDouble(budget.trim());
+				if (millis > 0) {
+					budgetNanos = (long) (millis * 1_000_000);
+				} else {
+					System.err.println("Ignoring non-positive pong.renderBudgetMs=" + budget);
+				}
+			} catch (NumberFormatException e) {
+				System.err.println("Ignoring invalid pong.renderBudgetMs=" + budget);
+			}
+		}
+		String pinned = System.getProperty("pong.quality", "auto").trim();
+		if (!pinned.equalsIgnoreCase("auto")) {
+			try {
+				return new QualityGovernor(budgetNanos, RenderQuality.valueOf(pinned.toUpperCase(Locale.ROOT)), false);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Ignoring unknown pong.quality=" + pinned + ", using auto");
+			}
+		}
+		return new QualityGovernor(budgetNanos, RenderQuality.HIGH, true);
+	}
+
+	/**
+	 * Accounts for one drawn frame. Must be called by one thread only.
+	 *
+	 * @param renderNanos Time spent drawing the frame
+	 * @return The tier to draw the next frame at
+	 */
+	public RenderQuality update(long renderNanos) {
+		if (!adaptive) {
+			return quality;
+		}
+		if (warmupFrames > 0) {
+			warmupFrames--;
+			return quality;
+		}
+		if (renderNanos > budgetNanos) {
+			slowFrames++;
+		}
+		if (renderNanos > headroomNanos) {
+			tightFrames++;
+		}
+		if (++frames < WINDOW_FRAMES) {
+			return quality;
+		}
+
+		if (windowsSinceUpgrade < Integer.MAX_VALUE) {
+			windowsSinceUpgrade++;
+		}
+		if (slowFrames > MAX_SLOW_FRAMES) {
+			if (quality != RenderQuality.MINIMAL) {
+				if (windowsSinceUpgrade <= 2) {
+					// the last step up did not fit the budget, so try again later
+					upgradeWindows = Math.min(upgradeWindows * 2, MAX_UPGRADE_WINDOWS);
+				}
+				quality = quality.lower();
+			}
+			calmWindows = 0;
+		} else if (tightFrames == 0 && quality != RenderQuality.HIGH) {
+			if (++calmWindows >= upgradeWindows) {
+				quality = quality.higher();
+				calmWindows = 0;
+				windowsSinceUpgrade = 0;
+			}
+		} else {
+			calmWindows = 0;
+		}
+		frames = 0;
+		slowFrames = 0;
+		tightFrames = 0;
+		return quality;
+	}
+
+	public RenderQuality getQuality() {
+		return quality;
+	}
+
+	/**
+	 * @return False if the tier was pinned by {@code pong.quality}
+	 */
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public long getBudgetNanos() {
+		return budgetNanos;
+	}
+}
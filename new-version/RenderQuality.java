@@ -0,0 +1,64 @@
+/**
+ * Rendering quality tiers, from the full look down to the cheapest frame
+ * software Java2D can draw. Each tier keeps the savings of the ones above
+ * it. Picked at runtime by the {@link QualityGovernor}.
+ */
+public enum RenderQuality {
+	/** Everything on */
+	HIGH(true, true, true, true),
+	/** No antialiasing on the menu text and sprites */
+	MEDIUM(false, true, true, true),
+	/**
+	 * Flat fills instead of gradients and translucent full-screen overlays,
+	 * and no grid
+	 */
+	LOW(false, false, false, true),
+	/** No particles */
+	MINIMAL(false, false, false, false);
+
+	private final boolean antialiasing;
+	private final boolean gradients;
+	private final boolean grid;
+	private final boolean particles;
+
+	RenderQuality(boolean antialiasing, boolean gradients, boolean grid, boolean particles) {
+		this.antialiasing = antialiasing;
+		this.gradients = gradients;
+		this.grid = grid;
+		this.particles = particles;
+	}
+
+	public boolean antialiasing() {
+		return antialiasing;
+	}
+
+	/**
+	 * @return True for gradients and translucent overlays, false for flat
+	 *         fills
+	 */
+	public boolean gradients() {
+		return gradients;
+	}
+
+	public boolean grid() {
+		return grid;
+	}
+
+	public boolean particles() {
+		return particles;
+	}
+
+	/**
+	 * @return The next cheaper tier, or this one if it is the cheapest
+	 */
+	public RenderQuality lower() {
+		return this == MINIMAL ? this : values()[ordinal() + 1];
+	}
+
+	/**
+	 * @return The next better tier, or this one if it is the best
+	 */
+	public RenderQuality higher() {
+		return this == HIGH ? this : values()[ordinal() - 1];
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Everything a frame of {@link GamePanel} shows, copied from the game state
+ * after a tick. The game thread fills one snapshot and publishes it through
+ * a {@link TripleBuffer}, and the render thread draws only the snapshot it
+ * took, so the picture depends on nothing that changes while it is drawn.
+ * Snapshots are reused, so every field is overwritten by each capture,
+ * except the timing totals while {@link #measured} is false.
+ */
+public final class RenderState {
+
+	GameState state = GameState.MENU;
+
+	// menu; the star field is advanced by the renderer, once per menu tick
+	int selectedOption;
+	float titleGlow;
+	long menuTicks;
+
+	// countdown, seconds left
+	int countdownNumber;
+
+	// match
+	int ballX;
+	int ballY;
+	int paddle1Y;
+	int paddle2Y;
+	int player1Score;
+	int player2Score;
+	final ParticleSystem.Snapshot particles;
+
+	// online match status
+	boolean online;
+	boolean waiting;
+	boolean disconnected;
+
+	// tier the frame is drawn at, set by the renderer
+	RenderQuality quality = RenderQuality.HIGH;
+
+	// frame timing overlay, and running totals of the game thread for it and
+	// the Flight Recorder; only sampled while either of them is on
+	boolean showMetrics;
+	boolean measured;
+	long ticks;
+	long updateNanos;
+	long tickJitter;
+	long allocatedBytes;
+
+	/**
+	 * @param particleCapacity Maximum number of particles the snapshot holds
+	 */
+	RenderState(int particleCapacity) {
+		particles = new ParticleSystem.Snapshot(particleCapacity);
+	}
+}
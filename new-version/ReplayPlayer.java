@@ -0,0 +1,211 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-runs a match recorded by {@link ReplayRecorder} through a
+ * {@link PongSimulation} and checks that it ends in the recorded state.
+ *
+ * Playback can follow the recorded tick rate, run ten times faster, or run
+ * unthrottled. Run from the command line to turn a replay file into a
+ * report:
+ * <pre>
+ * java ReplayPlayer match-1700000000000.pongreplay [realtime|10x|unthrottled]
+ * </pre>
+ */
+public final class ReplayPlayer {
+
+	/**
+	 * How fast ticks are replayed.
+	 */
+	public enum Speed {
+		REAL_TIME(1), FAST_10X(10), UNTHROTTLED(0);
+
+		private final int multiplier;
+
+		Speed(int multiplier) {
+			this.multiplier = multiplier;
+		}
+	}
+
+	/**
+	 * Receives every replayed tick, e.g. to draw or log it.
+	 */
+	public interface Listener {
+		/**
+		 * @param tick       Number of the tick just simulated, from 1
+		 * @param events     Events returned by {@link PongSimulation#step}
+		 * @param simulation Simulation after the tick
+		 */
+		void tick(long tick, int events, PongSimulation simulation);
+	}
+
+	private final long seed;
+	private final int ticksPerSecond;
+	private final byte[] log;
+	private final int entriesOffset;
+	private long expectedTicks;
+	private int expectedPlayer1Score;
+	private int expectedPlayer2Score;
+	private long expectedChecksum;
+
+	/**
+	 * Parses a replay log.
+	 *
+	 * @param log Bytes written by {@link ReplayRecorder#finish}
+	 * @throws IOException If the log is not a replay, was recorded by an older
+	 *                     version or at an unsupported tick rate, or is
+	 *                     truncated
+	 */
+	public ReplayPlayer(byte[] log) throws IOException {
+		this.log = log;
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(log));
+		if (in.readInt() != ReplayRecorder.MAGIC) {
+			throw new IOException("Not a replay file");
+		}
+		int version = in.readInt();
+		if (version != ReplayRecorder.VERSION) {
+			throw new IOException("Unsupported replay version " + version);
+		}
+		seed = in.readLong();
+		ticksPerSecond = in.readInt();
+		if (!TickScheduler.isSupportedRate(ticksPerSecond)) {
+			throw new IOException("Unsupported replay tick rate " + ticksPerSecond);
+		}
+		entriesOffset = log.length - in.available();
+	}
+
+	/**
+	 * Reads and parses a replay file.
+	 */
+	public static ReplayPlayer load(Path file) throws IOException {
+		return new ReplayPlayer(Files.readAllBytes(file));
+	}
+
+	/**
+	 * Replays the whole match.
+	 *
+	 * @param speed    Pacing of the replay
+	 * @param listener Receives every tick, or null
+	 * @return The simulation in its final state
+	 * @throws IOException           If the log is truncated
+	 * @throws IllegalStateException If the replay does not end in the recorded
+	 *                               state
+	 */
+	public PongSimulation play(Speed speed, Listener listener) throws IOException {
+		PongSimulation simulation = new PongSimulation(PongRules.DEFAULT, seed, ticksPerSecond);
+		DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(log, entriesOffset, log.length - entriesOffset));
+
+		long tickNanos = speed.multiplier == 0 ? 0 : 1_000_000_000L / ((long) ticksPerSecond * speed.multiplier);
+		long nextTick = System.nanoTime();
+		long tick = 0;
+
+		int inputs;
+		while ((inputs = in.readUnsignedByte()) != ReplayRecorder.END) {
+			int runLength = readVarInt(in);
+			if ((inputs & ReplayRecorder.NUDGE_FLAG) != 0) {
+				// Nudges come on single-tick entries and apply before the step
+				simulation.nudgePaddle(1, in.readByte());
+				simulation.nudgePaddle(2, in.readByte());
+			}
+			int input1 = (inputs & 0x3) - 1;
+			int input2 = ((inputs >> 2) & 0x3) - 1;
+
+			for (int i = 0; i < runLength; i++) {
+				if (tickNanos > 0) {
+					nextTick += tickNanos;
+					long remaining;
+					while ((remaining = nextTick - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(remaining);
+					}
+				}
+				int events = simulation.step(input1, input2);
+				tick++;
+				if (listener != null) {
+					listener.tick(tick, events, simulation);
+				}
+			}
+		}
+
+		expectedTicks = in.readLong();
+		expectedPlayer1Score = in.readInt();
+		expectedPlayer2Score = in.readInt();
+		expectedChecksum = in.readLong();
+		if (tick != expectedTicks || simulation.checksum() != expectedChecksum) {
+			throw new IllegalStateException(String.format(
+					"Replay diverged: %d ticks, score %d-%d, expected %d ticks, score %d-%d",
+					tick, simulation.getPlayer1Score(), simulation.getPlayer2Score(),
+					expectedTicks, expectedPlayer1Score, expectedPlayer2Score));
+		}
+		return simulation;
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed run length");
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: java ReplayPlayer <file" + ReplayRecorder.FILE_SUFFIX
+					+ "> [realtime|10x|unthrottled]");
+			System.exit(2);
+		}
+		Speed speed = Speed.UNTHROTTLED;
+		if (args.length > 1) {
+			switch (args[1]) {
+				case "realtime" -> speed = Speed.REAL_TIME;
+				case "10x" -> speed = Speed.FAST_10X;
+				case "unthrottled" -> speed = Speed.UNTHROTTLED;
+				default -> {
+					System.err.println("Unknown speed: " + args[1]);
+					System.exit(2);
+				}
+			}
+		}
+
+		ReplayPlayer player = load(Paths.get(args[0]));
+		int rate = player.getTicksPerSecond();
+		System.out.printf("Replaying seed %d at %d Hz, %s%n", player.getSeed(), rate, speed);
+
+		long start = System.nanoTime();
+		PongSimulation result;
+		try {
+			result = player.play(speed, (tick, events, simulation) -> {
+				if ((events & PongSimulation.EVENT_POINT) != 0) {
+					System.out.printf("%8.2f s  %d - %d%n", (double) tick / rate,
+							simulation.getPlayer1Score(), simulation.getPlayer2Score());
+				}
+			});
+		} catch (IllegalStateException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+			return;
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Final score %d - %d after %d ticks (%.1f s of play) re-simulated in %.3f s%n",
+				result.getPlayer1Score(), result.getPlayer2Score(), player.expectedTicks,
+				(double) player.expectedTicks / rate, elapsed);
+	}
+}
@@ -0,0 +1,179 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records a match as a compact input log that {@link ReplayPlayer} can
+ * re-simulate exactly.
+ *
+ * The log holds the simulation seed and tick rate, then one record per tick
+ * with both paddle inputs and any key-press nudges, run-length encoded so
+ * that long stretches of unchanged input cost a few bytes. It ends with the
+ * final tick count, score and {@link PongSimulation#checksum()} so playback
+ * can verify it reproduced the match.
+ *
+ * Layout (big-endian, as written by {@link DataOutputStream}):
+ * <pre>
+ * int    MAGIC, int VERSION, long seed, int ticksPerSecond
+ * entry* where entry = byte inputs, varint run length [, byte nudge1, byte nudge2]
+ * byte   END
+ * long   ticks, int player1Score, int player2Score, long checksum
+ * </pre>
+ * The input byte packs {@code input1 + 1} in bits 0-1 and {@code input2 + 1}
+ * in bits 2-3; bit 4 marks a single-tick entry carrying nudges. The game no
+ * longer nudges paddles on key presses, so it records no nudge entries.
+ * Logs of an older version are rejected, as they no longer replay the same
+ * way.
+ */
+public final class ReplayRecorder {
+
+	public static final int MAGIC = 0x504F4E47; // "PONG"
+	// 2: ticks above 60 Hz each take a share of a 60 Hz rules step
+	public static final int VERSION = 2;
+	public static final int END = 0xFF;
+	public static final int NUDGE_FLAG = 1 << 4;
+	public static final String FILE_SUFFIX = ".pongreplay";
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+	private final DataOutputStream out = new DataOutputStream(buffer);
+	private boolean recording;
+	private long ticks;
+	private int runInputs = -1;
+	private int runLength;
+
+	/**
+	 * Discards any previous recording and starts a new one.
+	 *
+	 * @param seed           Seed the simulation was reset with
+	 * @param ticksPerSecond Tick rate the match is played at
+	 */
+	public void start(long seed, int ticksPerSecond) {
+		buffer.reset();
+		ticks = 0;
+		runInputs = -1;
+		runLength = 0;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(seed);
+			out.writeInt(ticksPerSecond);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // cannot happen with an in-memory buffer
+		}
+		recording = true;
+	}
+
+	/**
+	 * Records the inputs of one simulation tick.
+	 *
+	 * @param input1 Input of player 1 passed to {@link PongSimulation#step}
+	 * @param input2 Input of player 2 passed to {@link PongSimulation#step}
+	 */
+	public void record(int input1, int input2) {
+		record(input1, input2, 0, 0);
+	}
+
+	/**
+	 * Records the inputs applied before one simulation tick.
+	 *
+	 * @param input1 Input of player 1 passed to {@link PongSimulation#step}
+	 * @param input2 Input of player 2 passed to {@link PongSimulation#step}
+	 * @param nudge1 Nudge applied to paddle 1 before the step
+	 * @param nudge2 Nudge applied to paddle 2 before the step
+	 */
+	public void record(int input1, int input2, int nudge1, int nudge2) {
+		if (!recording) {
+			return;
+		}
+		ticks++;
+		int inputs = (input1 + 1) | ((input2 + 1) << 2);
+		if (nudge1 != 0 || nudge2 != 0) {
+			flushRun();
+			write(inputs | NUDGE_FLAG);
+			writeVarInt(1);
+			write(clampToByte(nudge1));
+			write(clampToByte(nudge2));
+		} else if (inputs == runInputs) {
+			runLength++;
+		} else {
+			flushRun();
+			runInputs = inputs;
+			runLength = 1;
+		}
+	}
+
+	/**
+	 * Ends the recording and appends the final state of the simulation.
+	 *
+	 * @param simulation Simulation the recorded inputs were applied to
+	 * @return The complete log, or null if nothing was being recorded
+	 */
+	public byte[] finish(PongSimulation simulation) {
+		if (!recording) {
+			return null;
+		}
+		recording = false;
+		flushRun();
+		try {
+			out.writeByte(END);
+			out.writeLong(ticks);
+			out.writeInt(simulation.getPlayer1Score());
+			out.writeInt(simulation.getPlayer2Score());
+			out.writeLong(simulation.checksum());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Writes a finished log into a directory in the background, so the game
+	 * thread never waits on the disk.
+	 *
+	 * @param log       Log returned by {@link #finish}
+	 * @param directory Directory to create the file in
+	 */
+	public static void saveAsync(byte[] log, Path directory) {
+		CompletableFuture.runAsync(() -> {
+			try {
+				Files.createDirectories(directory);
+				Path file = directory.resolve("match-" + System.currentTimeMillis() + FILE_SUFFIX);
+				try (OutputStream stream = Files.newOutputStream(file)) {
+					stream.write(log);
+				}
+				System.out.println("Replay saved to " + file);
+			} catch (IOException e) {
+				System.err.println("Error saving replay: " + e.getMessage());
+			}
+		});
+	}
+
+	private void flushRun() {
+		if (runLength > 0) {
+			write(runInputs);
+			writeVarInt(runLength);
+			runLength = 0;
+			runInputs = -1;
+		}
+	}
+
+	private void writeVarInt(int value) {
+		while ((value & ~0x7F) != 0) {
+			write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		write(value);
+	}
+
+	private void write(int b) {
+		buffer.write(b);
+	}
+
+	private static int clampToByte(int value) {
+		return Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, value));
+	}
+}
@@ -0,0 +1,541 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Networked two-player match with client-side prediction and rollback.
+ *
+ * Each peer simulates every tick as soon as its own input is known, taking
+ * the remote paddle to keep doing whatever it did in the last tick whose input
+ * has arrived. When the real remote input for an already simulated tick turns
+ * out to be different, the simulation is restored from the snapshot taken
+ * before that tick and re-simulated up to the present, so the local paddle
+ * never waits for the network. A peer that gets too far ahead of the inputs
+ * it has received stalls instead, and a peer running ahead of the other one
+ * slows down for a tick now and then to keep rollbacks short.
+ *
+ * Every packet carries all local inputs the other peer has not acknowledged
+ * yet, so lost packets need no resends of their own, plus the checksum of
+ * the newest tick confirmed by both inputs to detect desyncs.
+ *
+ * The host plays the left paddle and picks the match seed; the client plays
+ * the right paddle. Both must run at the same tick rate and
+ * {@link PongRules#DEFAULT}. Not thread-safe; a session must be used from the
+ * game thread only.
+ */
+public final class RollbackSession implements AutoCloseable {
+
+	public static final int DEFAULT_PORT = 7777;
+
+	private static final short MAGIC = 0x504E; // "PN"
+	private static final byte VERSION = 1;
+	private static final byte TYPE_HELLO = 1;
+	private static final byte TYPE_START = 2;
+	private static final byte TYPE_INPUT = 3;
+
+	private static final long HELLO_INTERVAL_NANOS = 100_000_000L;
+	private static final long TIMEOUT_NANOS = 5_000_000_000L;
+	// Inputs per packet are counted in a byte
+	private static final int MAX_INPUTS_PER_PACKET = 255;
+	// Ticks between the slow-downs that keep both peers in step
+	private static final int TIME_SYNC_INTERVAL = 10;
+	private static final int NO_FRAME = Integer.MAX_VALUE;
+
+	private final NetLink link;
+	private final boolean host;
+	private final int ticksPerSecond;
+	private final PongSimulation simulation;
+	// Ticks that may be simulated past the last one with a known remote input
+	private final int maxPrediction;
+
+	// Per-tick rings indexed by frame & ringMask
+	private final int ringMask;
+	private final byte[] localInputs;
+	private final byte[] remoteInputs;
+	private final int[] remoteInputFrames;
+	// Remote input each tick was last simulated with, to spot mispredictions
+	private final byte[] simulatedRemoteInputs;
+	private final PongSimulation.Snapshot[] snapshots;
+	private final long[] simulatedNanos;
+	private final long[] localChecksums;
+	private final int[] localChecksumFrames;
+	private final long[] remoteChecksums;
+	private final int[] remoteChecksumFrames;
+	private final ByteBuffer out = ByteBuffer.allocate(NetLink.MAX_PACKET_SIZE);
+
+	private boolean connected;
+	private String failure;
+	private long seed;
+	private long lastHelloNanos;
+	private long lastReceiveNanos;
+
+	// Next tick to simulate
+	private int frame;
+	// Last tick up to which every remote input has arrived
+	private int confirmedRemoteFrame = -1;
+	private byte confirmedRemoteInput;
+	// Last local tick the remote peer has all inputs for
+	private int remoteAck = -1;
+	// Newest tick the remote peer reported and how far ahead of us it thought it was
+	private int remoteFrame = -1;
+	private int remoteAdvantage;
+	private int lastTimeSyncFrame;
+	private int rollbackFrame = NO_FRAME;
+	private int gameOverFrame = NO_FRAME;
+	private int lastChecksumFrame = -1;
+	private long lastChecksum;
+	private int consecutiveStalls;
+
+	private long rollbacks;
+	private long resimulatedFrames;
+	private int maxRollbackDepth;
+	private long stalls;
+	private long checksumsCompared;
+	private long desyncs;
+	private long roundTripNanos;
+
+	private RollbackSession(NetLink link, boolean host, int ticksPerSecond) {
+		this.link = link;
+		this.host = host;
+		this.ticksPerSecond = ticksPerSecond;
+		simulation = new PongSimulation(PongRules.DEFAULT, 0, ticksPerSecond);
+		maxPrediction = ticksPerSecond / 2;
+		// Room for both peers' prediction windows and the unacknowledged inputs
+		int ringSize = Integer.highestOneBit(maxPrediction * 4 - 1) << 1;
+		ringMask = ringSize - 1;
+		localInputs = new byte[ringSize];
+		remoteInputs = new byte[ringSize];
+		remoteInputFrames = new int[ringSize];
+		simulatedRemoteInputs = new byte[ringSize];
+		snapshots = new PongSimulation.Snapshot[ringSize];
+		simulatedNanos = new long[ringSize];
+		localChecksums = new long[ringSize];
+		localChecksumFrames = new int[ringSize];
+		remoteChecksums = new long[ringSize];
+		remoteChecksumFrames = new int[ringSize];
+		for (int i = 0; i < ringSize; i++) {
+			snapshots[i] = new PongSimulation.Snapshot();
+			remoteInputFrames[i] = -1;
+			localChecksumFrames[i] = -1;
+			remoteChecksumFrames[i] = -1;
+		}
+	}
+
+	/**
+	 * Waits for a client on the given port. The match seed is picked here.
+	 *
+	 * @param port           UDP port to listen on
+	 * @param ticksPerSecond Tick rate of the match
+	 * @param impairment     Artificial conditions for received packets
+	 * @throws IOException If the port cannot be bound
+	 */
+	public static RollbackSession host(int port, int ticksPerSecond, NetLink.Impairment impairment)
+			throws IOException {
+		RollbackSession session = new RollbackSession(new NetLink(port, impairment), true, ticksPerSecond);
+		session.seed = new Random().nextLong();
+		return session;
+	}
+
+	/**
+	 * Connects to a host; the handshake completes during later calls to
+	 * {@link #poll()} or {@link #advance(int)}.
+	 *
+	 * @param hostAddress    Address the host listens on
+	 * @param ticksPerSecond Tick rate of the match, must match the host's
+	 * @param impairment     Artificial conditions for received packets
+	 * @throws IOException If no local port can be bound
+	 */
+	public static RollbackSession join(SocketAddress hostAddress, int ticksPerSecond, NetLink.Impairment impairment)
+			throws IOException {
+		NetLink link = new NetLink(0, impairment);
+		link.setRemote(hostAddress);
+		return new RollbackSession(link, false, ticksPerSecond);
+	}
+
+	/**
+	 * Handles received packets and keeps the connection alive without
+	 * advancing the match, e.g. while waiting for the opponent or after the
+	 * match ended.
+	 */
+	public void poll() {
+		pump();
+		if (connected && failure == null) {
+			rollBack();
+			recordConfirmedChecksums();
+			sendInputs();
+		}
+	}
+
+	/**
+	 * Advances the match by one tick, rolling back first if remote input
+	 * arrived that contradicts a prediction. Does nothing while the session is
+	 * not connected or has to wait for the other player.
+	 *
+	 * @param localInput Input of the local player, one of the
+	 *                   {@code PongSimulation.INPUT_*} constants
+	 * @return Events raised by the new tick; events of re-simulated ticks are
+	 *         not reported again
+	 */
+	public int advance(int localInput) {
+		pump();
+		if (!connected || failure != null) {
+			return 0;
+		}
+		rollBack();
+		recordConfirmedChecksums();
+		if (frame - confirmedRemoteFrame > maxPrediction || needsTimeSync()) {
+			stalls++;
+			consecutiveStalls++;
+			sendInputs();
+			return 0;
+		}
+		consecutiveStalls = 0;
+
+		int slot = frame & ringMask;
+		localInputs[slot] = (byte) localInput;
+		simulatedNanos[slot] = System.nanoTime();
+		int events = simulateFrame(frame);
+		frame++;
+		recordConfirmedChecksums();
+		sendInputs();
+		return events;
+	}
+
+	private void pump() {
+		long now = System.nanoTime();
+		NetLink.Packet packet;
+		while ((packet = link.poll()) != null) {
+			try {
+				receive(packet, now);
+			} catch (BufferUnderflowException e) {
+				// truncated packet, ignore it
+			}
+		}
+		if (!connected) {
+			if (!host && failure == null && now - lastHelloNanos >= HELLO_INTERVAL_NANOS) {
+				lastHelloNanos = now;
+				beginPacket(TYPE_HELLO).putInt(ticksPerSecond);
+				send();
+			}
+		} else if (failure == null && now - lastReceiveNanos > TIMEOUT_NANOS) {
+			fail("Connection to the other player lost");
+		}
+	}
+
+	private void receive(NetLink.Packet packet, long now) {
+		ByteBuffer in = packet.getData();
+		if (in.getShort() != MAGIC || in.get() != VERSION) {
+			return;
+		}
+		byte type = in.get();
+		SocketAddress sender = packet.getSender();
+		if (type == TYPE_HELLO && host) {
+			// Only the first client gets to play
+			if (connected && !sender.equals(link.getRemote())) {
+				return;
+			}
+			int remoteRate = in.getInt();
+			link.setRemote(sender);
+			beginPacket(TYPE_START).putLong(seed).putInt(ticksPerSecond);
+			send();
+			if (!connected && remoteRate == ticksPerSecond) {
+				start(now);
+			}
+		} else if (type == TYPE_START && !host && !connected) {
+			long hostSeed = in.getLong();
+			int hostRate = in.getInt();
+			if (hostRate != ticksPerSecond) {
+				fail("Host runs at " + hostRate + " ticks per second, this game at " + ticksPerSecond);
+				return;
+			}
+			seed = hostSeed;
+			start(now);
+		} else if (type == TYPE_INPUT && connected && sender.equals(link.getRemote())) {
+			lastReceiveNanos = now;
+			receiveInputs(in, now);
+		}
+	}
+
+	private void start(long now) {
+		simulation.reset(seed);
+		connected = true;
+		lastReceiveNanos = now;
+	}
+
+	private void receiveInputs(ByteBuffer in, long now) {
+		int senderFrame = in.getInt();
+		int ack = in.getInt();
+		int senderAdvantage = in.get();
+		int checksumFrame = in.getInt();
+		long checksum = in.getLong();
+		int first = in.getInt();
+		int count = in.get() & 0xFF;
+
+		if (senderFrame > remoteFrame) {
+			remoteFrame = senderFrame;
+			remoteAdvantage = senderAdvantage;
+		}
+		if (ack > remoteAck && ack < frame) {
+			long sample = now - simulatedNanos[ack & ringMask];
+			roundTripNanos = roundTripNanos == 0 ? sample : roundTripNanos + (sample - roundTripNanos) / 8;
+			remoteAck = ack;
+		}
+		for (int i = 0; i < count; i++) {
+			storeRemoteInput(first + i, in.get());
+		}
+		if (checksumFrame >= 0) {
+			int slot = checksumFrame & ringMask;
+			if (localChecksumFrames[slot] == checksumFrame) {
+				compareChecksums(checksumFrame, localChecksums[slot], checksum);
+			} else if (checksumFrame > lastChecksumFrame) {
+				remoteChecksumFrames[slot] = checksumFrame;
+				remoteChecksums[slot] = checksum;
+			}
+		}
+	}
+
+	private void storeRemoteInput(int remote, byte input) {
+		// Drop inputs already confirmed and ones too far ahead for the ring
+		if (remote <= confirmedRemoteFrame || remote - confirmedRemoteFrame > ringMask) {
+			return;
+		}
+		int slot = remote & ringMask;
+		if (remoteInputFrames[slot] == remote) {
+			return;
+		}
+		remoteInputFrames[slot] = remote;
+		remoteInputs[slot] = input;
+		if (remote < frame && simulatedRemoteInputs[slot] != input) {
+			rollbackFrame = Math.min(rollbackFrame, remote);
+		}
+		while (remoteInputFrames[(confirmedRemoteFrame + 1) & ringMask] == confirmedRemoteFrame + 1) {
+			confirmedRemoteFrame++;
+			confirmedRemoteInput = remoteInputs[confirmedRemoteFrame & ringMask];
+		}
+	}
+
+	// Re-simulate from the oldest mispredicted tick with the inputs known now
+	private void rollBack() {
+		if (rollbackFrame >= frame) {
+			rollbackFrame = NO_FRAME;
+			return;
+		}
+		int from = rollbackFrame;
+		rollbackFrame = NO_FRAME;
+		simulation.restore(snapshots[from & ringMask]);
+		if (gameOverFrame >= from) {
+			gameOverFrame = NO_FRAME;
+		}
+		for (int f = from; f < frame; f++) {
+			simulateFrame(f);
+		}
+		rollbacks++;
+		resimulatedFrames += frame - from;
+		maxRollbackDepth = Math.max(maxRollbackDepth, frame - from);
+	}
+
+	private int simulateFrame(int f) {
+		int slot = f & ringMask;
+		simulation.save(snapshots[slot]);
+		// Predict that the remote player keeps the last input we know of
+		byte remote = remoteInputFrames[slot] == f ? remoteInputs[slot] : confirmedRemoteInput;
+		simulatedRemoteInputs[slot] = remote;
+		int local = localInputs[slot];
+		int events = host ? simulation.step(local, remote) : simulation.step(remote, local);
+		if ((events & PongSimulation.EVENT_GAME_OVER) != 0 && f < gameOverFrame) {
+			gameOverFrame = f;
+		}
+		return events;
+	}
+
+	// Slow down now and then while we are further ahead of the remote peer than it is of us
+	private boolean needsTimeSync() {
+		if (remoteFrame < 0 || frame - lastTimeSyncFrame < TIME_SYNC_INTERVAL) {
+			return false;
+		}
+		int localAdvantage = frame - remoteFrame;
+		if ((localAdvantage - remoteAdvantage) / 2 < 1) {
+			return false;
+		}
+		lastTimeSyncFrame = frame;
+		return true;
+	}
+
+	private int confirmedFrame() {
+		return Math.min(confirmedRemoteFrame, frame - 1);
+	}
+
+	private void recordConfirmedChecksums() {
+		int confirmed = confirmedFrame();
+		for (int f = lastChecksumFrame + 1; f <= confirmed; f++) {
+			// State after tick f is the snapshot taken before tick f + 1
+			long checksum = f + 1 == frame ? simulation.checksum() : snapshots[(f + 1) & ringMask].checksum();
+			int slot = f & ringMask;
+			localChecksumFrames[slot] = f;
+			localChecksums[slot] = checksum;
+			if (remoteChecksumFrames[slot] == f) {
+				compareChecksums(f, checksum, remoteChecksums[slot]);
+				remoteChecksumFrames[slot] = -1;
+			}
+			lastChecksumFrame = f;
+			lastChecksum = checksum;
+		}
+	}
+
+	private void compareChecksums(int checkedFrame, long local, long remote) {
+		checksumsCompared++;
+		if (local != remote && desyncs++ == 0) {
+			System.err.println("Desync at tick " + checkedFrame);
+		}
+	}
+
+	private void sendInputs() {
+		int first = Math.max(remoteAck + 1, frame - MAX_INPUTS_PER_PACKET);
+		int count = frame - first;
+		int advantage = remoteFrame < 0 ? 0 : Math.max(-128, Math.min(127, frame - remoteFrame));
+		beginPacket(TYPE_INPUT)
+				.putInt(frame)
+				.putInt(confirmedRemoteFrame)
+				.put((byte) advantage)
+				.putInt(lastChecksumFrame)
+				.putLong(lastChecksum)
+				.putInt(first)
+				.put((byte) count);
+		for (int f = first; f < frame; f++) {
+			out.put(localInputs[f & ringMask]);
+		}
+		send();
+	}
+
+	private ByteBuffer beginPacket(byte type) {
+		out.clear();
+		return out.putShort(MAGIC).put(VERSION).put(type);
+	}
+
+	private void send() {
+		out.flip();
+		link.send(out);
+	}
+
+	private void fail(String message) {
+		failure = message;
+		System.err.println(message);
+	}
+
+	public PongSimulation getSimulation() {
+		return simulation;
+	}
+
+	/**
+	 * @return 1 if this peer plays the left paddle, 2 for the right one
+	 */
+	public int getLocalPlayer() {
+		return host ? 1 : 2;
+	}
+
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * @return Why the session stopped, or null while it is working
+	 */
+	public String getFailure() {
+		return failure;
+	}
+
+	/**
+	 * @return True while the match cannot advance: before the other player
+	 *         connected or while their inputs are too far behind
+	 */
+	public boolean isWaiting() {
+		return !connected || failure != null || consecutiveStalls > ticksPerSecond / 4;
+	}
+
+	/**
+	 * @return True once a tick confirmed by both players' inputs ended the
+	 *         match; a predicted game over may still be rolled back
+	 */
+	public boolean isMatchOver() {
+		return gameOverFrame <= confirmedFrame();
+	}
+
+	public int getLocalPort() {
+		return link.getLocalPort();
+	}
+
+	/**
+	 * @return Number of ticks simulated, not counting re-simulations
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	public long getRollbacks() {
+		return rollbacks;
+	}
+
+	public long getResimulatedFrames() {
+		return resimulatedFrames;
+	}
+
+	public int getMaxRollbackDepth() {
+		return maxRollbackDepth;
+	}
+
+	/**
+	 * @return Ticks skipped waiting for remote input or to let the other
+	 *         peer catch up
+	 */
+	public long getStalls() {
+		return stalls;
+	}
+
+	public long getChecksumsCompared() {
+		return checksumsCompared;
+	}
+
+	public long getDesyncs() {
+		return desyncs;
+	}
+
+	/**
+	 * @return Smoothed time from simulating a tick to the other peer
+	 *         acknowledging its input
+	 */
+	public double getRoundTripMillis() {
+		return roundTripNanos / 1e6;
+	}
+
+	/**
+	 * @return One-line summary of the prediction statistics
+	 */
+	public String statsReport() {
+		return String.format("player %d: %d ticks, rtt %.1f ms, %d rollbacks (%.2f ticks avg, %d max), "
+				+ "%d stalls, %d checksums compared, %d desyncs, %d packets dropped",
+				getLocalPlayer(), frame, getRoundTripMillis(), rollbacks,
+				rollbacks == 0 ? 0.0 : (double) resimulatedFrames / rollbacks, maxRollbackDepth,
+				stalls, checksumsCompared, desyncs, link.getDropped());
+	}
+
+	@Override
+	public void close() {
+		link.close();
+	}
+
+	/**
+	 * Parses "host", "host:port" or ":port".
+	 *
+	 * @param address Address as given on the command line
+	 * @return Socket address, with {@link #DEFAULT_PORT} if none was given
+	 */
+	public static InetSocketAddress parseAddress(String address) {
+		int colon = address.lastIndexOf(':');
+		String hostName = colon < 0 ? address : address.substring(0, colon);
+		int port = colon < 0 ? DEFAULT_PORT : Integer.parseInt(address.substring(colon + 1));
+		return new InetSocketAddress(hostName.isEmpty() ? "localhost" : hostName, port);
+	}
+}
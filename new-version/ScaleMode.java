@@ -0,0 +1,65 @@
+import java.awt.Rectangle;
+import java.util.Locale;
+
+/**
+ * How the fixed-size logical frame is fitted into the window. Read from the
+ * {@code pong.scale} system property: {@code fit} (the default),
+ * {@code integer} or {@code stretch}.
+ */
+public enum ScaleMode {
+	/** As large as fits with the aspect ratio kept, with black bars on the sides or top and bottom */
+	FIT,
+	/**
+	 * The largest whole multiple of the logical size that fits, with bars
+	 * around it, so pixels stay sharp; like {@link #FIT} in windows smaller
+	 * than the logical size
+	 */
+	INTEGER,
+	/** Fills the whole window, distorting the aspect ratio */
+	STRETCH;
+
+	/**
+	 * @return The mode configured by {@code pong.scale}
+	 */
+	public static ScaleMode fromSystemProperties() {
+		String value = System.getProperty("pong.scale", "fit").trim();
+		try {
+			return valueOf(value.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			System.err.println("Ignoring unknown pong.scale=" + value + ", using fit");
+			return FIT;
+		}
+	}
+
+	/**
+	 * Computes where the logical frame is drawn in the target area.
+	 *
+	 * @param width        Logical width
+	 * @param height       Logical height
+	 * @param targetWidth  Width of the area to fill, in device pixels
+	 * @param targetHeight Height of the area to fill, in device pixels
+	 * @param destination  Receives the drawn area, centered in the target
+	 */
+	public void place(int width, int height, int targetWidth, int targetHeight, Rectangle destination) {
+		if (this == STRETCH) {
+			destination.setBounds(0, 0, targetWidth, targetHeight);
+			return;
+		}
+		int drawnWidth;
+		int drawnHeight;
+		int factor = Math.min(targetWidth / width, targetHeight / height);
+		if (this == INTEGER && factor >= 1) {
+			drawnWidth = width * factor;
+			drawnHeight = height * factor;
+		} else if ((long) targetWidth * height <= (long) targetHeight * width) {
+			// the window is narrower than the frame, so bars go above and below
+			drawnWidth = targetWidth;
+			drawnHeight = (int) ((long) targetWidth * height / width);
+		} else {
+			drawnWidth = (int) ((long) targetHeight * width / height);
+			drawnHeight = targetHeight;
+		}
+		destination.setBounds((targetWidth - drawnWidth) / 2, (targetHeight - drawnHeight) / 2, drawnWidth,
+				drawnHeight);
+	}
+}
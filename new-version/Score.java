@@ -10,6 +10,16 @@ public class Score extends Rectangle {
 	private int player1; // To hold score of Player1
 	private int player2; // To hold score of Player2
 
+	// Score digits rendered once, drawn without formatting every frame
+	private static final Font SCORE_FONT = new Font("Arial", Font.BOLD, 48);
+	private final TextCache.Digits player1Digits = TextCache.digits(SCORE_FONT, new Color(66, 135, 245));
+	private final TextCache.Digits player2Digits = TextCache.digits(SCORE_FONT, new Color(245, 66, 66));
+	private static final int SCORE_BASELINE = 45;
+	// Scores shown by the last draw, -1 before the first one
+	private int drawnPlayer1 = -1;
+	private int drawnPlayer2 = -1;
+	private final Rectangle bounds = new Rectangle();
+
 	/**
 	 * Constructs a new score manager.
 	 * 
@@ -22,28 +32,73 @@ public class Score extends Rectangle {
 	}
 
 	/**
-	 * Renders the current score and center line on the screen.
+	 * Renders the current score on the screen.
+	 * The score bar and center line are drawn by {@link #drawStatic(Graphics, boolean)}.
 	 * 
 	 * @param g Graphics context for rendering
 	 */
 	public void draw(Graphics g) {
+		// Draw two-digit scores from the cached digits
+		player1Digits.drawNumber(g, player1, 2, player1X(), SCORE_BASELINE); // Blue for player 1
+		player2Digits.drawNumber(g, player2, 2, player2X(), SCORE_BASELINE); // Red for player 2
+		drawnPlayer1 = player1;
+		drawnPlayer2 = player2;
+	}
+
+	/**
+	 * Reports the text of each score that changed since it was last drawn,
+	 * covering both the old and the new number.
+	 * 
+	 * @param region Region of the frame to redraw
+	 */
+	public void addDamage(DirtyRegion region) {
+		if (player1 != drawnPlayer1) {
+			addDigits(region, player1Digits, player1, drawnPlayer1, player1X());
+		}
+		if (player2 != drawnPlayer2) {
+			addDigits(region, player2Digits, player2, drawnPlayer2, player2X());
+		}
+	}
+
+	private void addDigits(DirtyRegion region, TextCache.Digits digits, int shown, int drawn, int x) {
+		digits.getBounds(shown, 2, x, SCORE_BASELINE, bounds);
+		region.add(bounds.x, bounds.y, bounds.width, bounds.height);
+		if (drawn >= 0) {
+			digits.getBounds(drawn, 2, x, SCORE_BASELINE, bounds);
+			region.add(bounds.x, bounds.y, bounds.width, bounds.height);
+		}
+	}
+
+	private static int player1X() {
+		return (GAME_WIDTH / 2) - 85;
+	}
+
+	private static int player2X() {
+		return (GAME_WIDTH / 2) + 20;
+	}
+
+	/**
+	 * Renders the parts of the score display that never change: the score bar
+	 * background and the dashed center line. Used to build the cached
+	 * background layer.
+	 * 
+	 * @param g         Graphics context for rendering
+	 * @param gradients False to draw the score bar as a flat band
+	 */
+	public void drawStatic(Graphics g, boolean gradients) {
 		Graphics2D g2d = (Graphics2D) g;
 
 		// Create a gradient background for the score area
-		GradientPaint gradient = new GradientPaint(
-				0, 0, new Color(40, 40, 40, 150),
-				0, 50, new Color(0, 0, 0, 0));
-		g2d.setPaint(gradient);
+		if (gradients) {
+			GradientPaint gradient = new GradientPaint(
+					0, 0, new Color(40, 40, 40, 150),
+					0, 50, new Color(0, 0, 0, 0));
+			g2d.setPaint(gradient);
+		} else {
+			g2d.setColor(new Color(40, 40, 40, 75));
+		}
 		g2d.fillRect(0, 0, GAME_WIDTH, 50);
 
-		// Draw scores with modern font and style
-		g.setFont(new Font("Arial", Font.BOLD, 48));
-		g.setColor(new Color(66, 135, 245)); // Blue for player 1
-		g.drawString(String.format("%02d", player1), (GAME_WIDTH / 2) - 85, 45);
-
-		g.setColor(new Color(245, 66, 66)); // Red for player 2
-		g.drawString(String.format("%02d", player2), (GAME_WIDTH / 2) + 20, 45);
-
 		// Draw center line with dashed style from top to bottom
 		g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] { 10 }, 0));
 		g2d.setColor(new Color(255, 255, 255, 100));
@@ -59,16 +114,14 @@ public class Score extends Rectangle {
 		return player2;
 	}
 
-	public void incrementPlayer1() {
-		player1++;
-	}
-
-	public void incrementPlayer2() {
-		player2++;
-	}
-
-	public void resetScore() {
-		player1 = 0;
-		player2 = 0;
+	/**
+	 * Updates the displayed score.
+	 * 
+	 * @param player1 Score of Player1
+	 * @param player2 Score of Player2
+	 */
+	public void setScores(int player1, int player2) {
+		this.player1 = player1;
+		this.player2 = player2;
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
 import javax.sound.sampled.*;
 
 /**
@@ -7,98 +10,156 @@ import javax.sound.sampled.*;
  * Handles loading, playing, and stopping of audio resources.
  */
 public class SoundManager {
-    private static Clip menuMusic;
-    private static Clip gameMusic;
     private static Clip buttonSound;
     private static Clip paddleHitSound;
     private static Clip gameOverSound;
     private static Clip ballBounceSound;
 
+    // Effects are mixed in software instead of played by Clips with -Dpong.audio=mixer
+    private static final boolean USE_MIXER = "mixer".equals(System.getProperty("pong.audio"));
+    private static SoundMixer mixer;
+    private static int paddleHitEffect = -1;
+    private static int buttonEffect = -1;
+    private static int ballBounceEffect = -1;
+    private static int gameOverEffect = -1;
+
+    // Music is streamed in chunks rather than decoded into Clips
+    private static final String MENU_MUSIC = "sound_files/menu_music.wav";
+    private static final String GAME_MUSIC = "sound_files/game_music.wav";
+    private static final MusicStreamer MUSIC = new MusicStreamer();
+
+    // Sound commands, executed in order by the audio thread
+    private static final int PLAY_MENU_MUSIC = 0;
+    private static final int STOP_MENU_MUSIC = 1;
+    private static final int PLAY_GAME_MUSIC = 2;
+    private static final int STOP_GAME_MUSIC = 3;
+    private static final int BUTTON_SOUND = 4;
+    private static final int PADDLE_HIT_SOUND = 5;
+    private static final int GAME_OVER_SOUND = 6;
+    private static final int BALL_BOUNCE_SOUND = 7;
+
+    // Game code only enqueues commands, so a slow audio device never stalls a tick
+    private static final AudioCommandQueue COMMANDS = new AudioCommandQueue(256);
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+    private static Thread audioThread;
+    private static volatile boolean audioThreadParked;
+
     /**
      * Initializes all sound resources for the game.
-     * Loads audio files from the sound_files directory using ClassLoader.
-     * Automatically starts playing game music upon successful initialization.
+     * Starts the audio thread, which loads the sounds in the background and
+     * then executes all play and stop requests; requests made while the
+     * sounds are loading wait in the queue. Returns immediately.
      */
     public static void init() {
+        startAudioThread();
+    }
+
+    // Decodes the effects in parallel, then opens them in the mixer or as Clips
+    private static void loadSounds() {
+        long start = System.nanoTime();
+        CompletableFuture<DecodedSound> ballHit = CompletableFuture.supplyAsync(
+                () -> decode("sound_files/ball_hit.wav"));
+        CompletableFuture<DecodedSound> ballBounce = CompletableFuture.supplyAsync(
+                () -> decode("sound_files/ball_bounce.wav"));
+        DecodedSound hit = ballHit.join();
+        DecodedSound bounce = ballBounce.join();
+
+        if (USE_MIXER) {
+            initMixer(hit, bounce);
+        }
+        if (mixer == null) {
+            // The button sound reuses the decoded paddle hit sound
+            paddleHitSound = openClip(hit);
+            buttonSound = openClip(hit);
+            ballBounceSound = openClip(bounce);
+        }
+        System.out.printf("Sounds loaded in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+
+    private record DecodedSound(AudioFormat format, byte[] data) {
+    }
+
+    private static DecodedSound decode(String resource) {
+        InputStream stream = AssetBundle.openResource(resource);
+        if (stream == null) {
+            System.err.println("Sound not found: " + resource);
+            return null;
+        }
+        try (AudioInputStream audio = AudioSystem.getAudioInputStream(stream)) {
+            return new DecodedSound(audio.getFormat(), audio.readAllBytes());
+        } catch (UnsupportedAudioFileException | IOException e) {
+            System.err.println("Error loading " + resource + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Clip openClip(DecodedSound sound) {
+        if (sound == null) {
+            return null;
+        }
         try {
-            // Get the current working directory and print it for debugging
-            String currentPath = new File(".").getAbsolutePath();
-            System.out.println("Current working directory: " + currentPath);
-
-            ClassLoader classLoader = SoundManager.class.getClassLoader();
-
-            // Load game music
-            File gameMusicFile = new File(classLoader.getResource("sound_files/game_music.wav").getFile());
-            AudioInputStream gameMusicStream = AudioSystem.getAudioInputStream(gameMusicFile);
-            gameMusic = AudioSystem.getClip();
-            gameMusic.open(gameMusicStream);
-
-            // Load ball hit sound
-            File ballHitFile = new File(classLoader.getResource("sound_files/ball_hit.wav").getFile());
-            AudioInputStream paddleStream = AudioSystem.getAudioInputStream(ballHitFile);
-            paddleHitSound = AudioSystem.getClip();
-            paddleHitSound.open(paddleStream);
-
-            // Load button sound
-            File buttonFile = new File(classLoader.getResource("sound_files/ball_hit.wav").getFile());
-            AudioInputStream buttonStream = AudioSystem.getAudioInputStream(buttonFile);
-            buttonSound = AudioSystem.getClip();
-            buttonSound.open(buttonStream);
-
-            // Load ball bounce sound
-            File ballBounceFile = new File(classLoader.getResource("sound_files/ball_bounce.wav").getFile());
-            AudioInputStream bounceStream = AudioSystem.getAudioInputStream(ballBounceFile);
-            ballBounceSound = AudioSystem.getClip();
-            ballBounceSound.open(bounceStream);
-
-            // Start playing game music immediately
-            playGameMusic();
-
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            System.err.println("Error loading sound files: " + e.getMessage());
-            e.printStackTrace();
-        } catch (Exception e) {
-            System.err.println("Unexpected error: " + e.getMessage());
-            e.printStackTrace();
+            Clip clip = AudioSystem.getClip();
+            clip.open(sound.format(), sound.data(), 0, sound.data().length);
+            return clip;
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Error opening sound: " + e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Starts playing menu background music in a loop.
+     * Starts the software mixer and loads the effects into it.
+     * Falls back to Clips if no output line is available.
      */
-    public static void playMenuMusic() {
-        if (menuMusic != null) {
-            menuMusic.loop(Clip.LOOP_CONTINUOUSLY);
+    private static void initMixer(DecodedSound hit, DecodedSound bounce) {
+        SoundMixer candidate = new SoundMixer();
+        try {
+            paddleHitEffect = loadEffect(candidate, hit);
+            buttonEffect = paddleHitEffect;
+            ballBounceEffect = loadEffect(candidate, bounce);
+            candidate.start();
+            mixer = candidate;
+        } catch (IOException | LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Sound mixer unavailable, using clips: " + e.getMessage());
         }
     }
 
+    private static int loadEffect(SoundMixer target, DecodedSound sound) throws IOException {
+        if (sound == null) {
+            return -1;
+        }
+        return target.load(new AudioInputStream(new ByteArrayInputStream(sound.data()), sound.format(),
+                sound.data().length / sound.format().getFrameSize()));
+    }
+
+    /**
+     * Starts playing menu background music in a loop, crossfading from the
+     * game music.
+     */
+    public static void playMenuMusic() {
+        enqueue(PLAY_MENU_MUSIC, 0f, false);
+    }
+
     /**
      * Stops the currently playing menu music.
      */
     public static void stopMenuMusic() {
-        if (menuMusic != null) {
-            menuMusic.stop();
-        }
+        enqueue(STOP_MENU_MUSIC, 0f, false);
     }
 
     /**
-     * Starts playing game background music in a loop.
-     * Resets to beginning before playing.
+     * Starts playing game background music in a loop, crossfading from the
+     * menu music.
      */
     public static void playGameMusic() {
-        if (gameMusic != null) {
-            gameMusic.setFramePosition(0);
-            gameMusic.loop(Clip.LOOP_CONTINUOUSLY);
-        }
+        enqueue(PLAY_GAME_MUSIC, 0f, false);
     }
 
     /**
      * Stops the currently playing game music.
      */
     public static void stopGameMusic() {
-        if (gameMusic != null) {
-            gameMusic.stop();
-        }
+        enqueue(STOP_GAME_MUSIC, 0f, false);
     }
 
     /**
@@ -106,10 +167,7 @@ public class SoundManager {
      * Used for menu navigation and UI interactions.
      */
     public static void playButtonSound() {
-        if (buttonSound != null) {
-            buttonSound.setFramePosition(0);
-            buttonSound.start();
-        }
+        enqueue(BUTTON_SOUND, 0f, true);
     }
 
     /**
@@ -117,17 +175,17 @@ public class SoundManager {
      * Used when the ball collides with a paddle.
      */
     public static void playPaddleHitSound() {
-        if (paddleHitSound != null) {
-            try {
-                paddleHitSound.setFramePosition(0);
-                paddleHitSound.start();
-            } catch (Exception e) {
-                System.err.println("Error playing paddle hit sound: " + e.getMessage());
-                e.printStackTrace();
-            }
-        } else {
-            System.err.println("Paddle hit sound not loaded. Check if sound_files/ball_hit.wav exists.");
-        }
+        playPaddleHitSound(0f);
+    }
+
+    /**
+     * Plays the paddle hit sound effect at a stereo position.
+     * Clips cannot pan and ignore the position.
+     *
+     * @param pan Position from -1 (left) to 1 (right)
+     */
+    public static void playPaddleHitSound(float pan) {
+        enqueue(PADDLE_HIT_SOUND, pan, true);
     }
 
     /**
@@ -135,10 +193,7 @@ public class SoundManager {
      * Used when a player wins the game.
      */
     public static void playGameOverSound() {
-        if (gameOverSound != null) {
-            gameOverSound.setFramePosition(0);
-            gameOverSound.start();
-        }
+        enqueue(GAME_OVER_SOUND, 0f, true);
     }
 
     /**
@@ -146,9 +201,85 @@ public class SoundManager {
      * Used when transitioning from menu to game state.
      */
     public static void playBallBounceSound() {
-        if (ballBounceSound != null) {
-            ballBounceSound.setFramePosition(0);
-            ballBounceSound.start();
+        enqueue(BALL_BOUNCE_SOUND, 0f, true);
+    }
+
+    /**
+     * @return Number of sound commands dropped because the audio thread fell
+     *         behind
+     */
+    public static long getDroppedCommands() {
+        return COMMANDS.getDropped();
+    }
+
+    // Never blocks: the command is dropped if the queue is full
+    private static void enqueue(int command, float argument, boolean droppable) {
+        if (COMMANDS.offer(command, argument, droppable) && audioThreadParked) {
+            audioThreadParked = false;
+            LockSupport.unpark(audioThread);
+        }
+    }
+
+    private static synchronized void startAudioThread() {
+        if (audioThread != null) {
+            return;
+        }
+        audioThread = new Thread(() -> {
+            loadSounds();
+            drainCommands();
+        }, "Audio commands");
+        audioThread.setDaemon(true);
+        audioThread.start();
+    }
+
+    // Runs on the audio thread, the only thread that touches Clips and the mixer
+    private static void drainCommands() {
+        while (true) {
+            while (COMMANDS.poll(SoundManager::execute)) {
+                // keep draining
+            }
+            audioThreadParked = true;
+            // Re-check so a command offered just before the flag was set is not missed;
+            // the timeout covers a producer that saw the flag still clear
+            if (COMMANDS.isEmpty()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            audioThreadParked = false;
+        }
+    }
+
+    private static void execute(int command, float argument) {
+        try {
+            switch (command) {
+                case PLAY_MENU_MUSIC -> MUSIC.play(MENU_MUSIC, MusicStreamer.DEFAULT_FADE_MILLIS);
+                case STOP_MENU_MUSIC -> stopMusic(MENU_MUSIC);
+                case PLAY_GAME_MUSIC -> MUSIC.play(GAME_MUSIC, MusicStreamer.DEFAULT_FADE_MILLIS);
+                case STOP_GAME_MUSIC -> stopMusic(GAME_MUSIC);
+                case BUTTON_SOUND -> playEffect(buttonSound, buttonEffect, 0f);
+                case PADDLE_HIT_SOUND -> playEffect(paddleHitSound, paddleHitEffect, argument);
+                case GAME_OVER_SOUND -> playEffect(gameOverSound, gameOverEffect, 0f);
+                case BALL_BOUNCE_SOUND -> playEffect(ballBounceSound, ballBounceEffect, 0f);
+                default -> System.err.println("Unknown sound command " + command);
+            }
+        } catch (Exception e) {
+            // A failing audio device must not kill the audio thread
+            System.err.println("Error playing sound: " + e.getMessage());
+        }
+    }
+
+    // Only fades out the track if it is the one playing, so it cannot cut the next one
+    private static void stopMusic(String track) {
+        if (track.equals(MUSIC.getCurrentTrack())) {
+            MUSIC.stop(MusicStreamer.DEFAULT_FADE_MILLIS);
+        }
+    }
+
+    private static void playEffect(Clip clip, int effect, float pan) {
+        if (mixer != null) {
+            mixer.play(effect, 1f, pan);
+        } else if (clip != null) {
+            clip.setFramePosition(0);
+            clip.start();
         }
     }
-}
\ No newline at end of file
+}
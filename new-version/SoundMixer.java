@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sound.sampled.*;
+
+/**
+ * Software mixer for sound effects.
+ * Effects are decoded to mono float PCM once and played by a fixed pool of
+ * voices that are summed into a single {@link SourceDataLine}, so the same
+ * effect can overlap itself and every effect shares one small output buffer
+ * instead of one Clip line each.
+ *
+ * Enabled with {@code -Dpong.audio=mixer}; the output buffer length is set
+ * with {@code -Dpong.audioBufferMs} (default 20 ms). With
+ * {@code -Dpong.audioStats=true} the measured output latency is printed
+ * every few seconds, see {@link #latencyReport()}.
+ */
+public final class SoundMixer implements Runnable {
+    public static final float SAMPLE_RATE = 48000f;
+    public static final int DEFAULT_VOICES = 16;
+    public static final int DEFAULT_BUFFER_MILLIS = 20;
+
+    private static final int CHANNELS = 2;
+    private static final int BYTES_PER_FRAME = 2 * CHANNELS;
+    private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+    private final List<float[]> samples = new ArrayList<>();
+    private final int bufferMillis;
+    private final boolean reportStats;
+
+    // Voice pool, indexed by voice; sample -1 marks a free voice
+    private final int[] voiceSample;
+    private final int[] voicePosition;
+    private final float[] voiceGainLeft;
+    private final float[] voiceGainRight;
+    private final long[] voiceStarted;
+    private long voiceCounter;
+
+    private SourceDataLine line;
+    private Thread thread;
+    private volatile boolean running;
+    private float[] mixBuffer;
+    private byte[] outputBuffer;
+    private volatile long framesWritten;
+    private volatile double maxLatencyMillis; // over the last reporting window
+
+    public SoundMixer() {
+        this(DEFAULT_VOICES, Integer.getInteger("pong.audioBufferMs", DEFAULT_BUFFER_MILLIS));
+    }
+
+    /**
+     * @param voices       Number of effects that can sound at the same time
+     * @param bufferMillis Length of the output line buffer
+     */
+    public SoundMixer(int voices, int bufferMillis) {
+        this.bufferMillis = bufferMillis;
+        this.reportStats = Boolean.getBoolean("pong.audioStats");
+        voiceSample = new int[voices];
+        voicePosition = new int[voices];
+        voiceGainLeft = new float[voices];
+        voiceGainRight = new float[voices];
+        voiceStarted = new long[voices];
+        Arrays.fill(voiceSample, -1);
+    }
+
+    /**
+     * Decodes an effect into memory.
+     *
+     * @param stream Audio in any PCM format Java Sound can read
+     * @return Id to pass to {@link #play}
+     */
+    public int load(AudioInputStream stream) throws IOException {
+        AudioFormat source = stream.getFormat();
+        AudioFormat pcm = new AudioFormat(source.getSampleRate(), 16, source.getChannels(), true, false);
+        byte[] bytes;
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(pcm, stream)) {
+            bytes = in.readAllBytes();
+        }
+
+        // Down-mix to mono; panning is applied per voice
+        int channels = pcm.getChannels();
+        int frames = bytes.length / (2 * channels);
+        float[] mono = new float[frames];
+        for (int frame = 0; frame < frames; frame++) {
+            float sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                int offset = (frame * channels + channel) * 2;
+                sum += (short) ((bytes[offset] & 0xFF) | (bytes[offset + 1] << 8));
+            }
+            mono[frame] = sum / (channels * 32768f);
+        }
+
+        float[] sample = resample(mono, pcm.getSampleRate());
+        synchronized (this) {
+            samples.add(sample);
+            return samples.size() - 1;
+        }
+    }
+
+    // Linear interpolation to the mixer rate
+    private static float[] resample(float[] input, float rate) {
+        if (rate == SAMPLE_RATE || input.length == 0) {
+            return input;
+        }
+        double step = rate / SAMPLE_RATE;
+        float[] output = new float[(int) (input.length / step)];
+        for (int i = 0; i < output.length; i++) {
+            double position = i * step;
+            int index = (int) position;
+            float fraction = (float) (position - index);
+            float next = index + 1 < input.length ? input[index + 1] : input[index];
+            output[i] = input[index] + (next - input[index]) * fraction;
+        }
+        return output;
+    }
+
+    /**
+     * Opens the output line and starts the mixing thread.
+     *
+     * @throws LineUnavailableException If no output line supports the format
+     */
+    public void start() throws LineUnavailableException {
+        int bufferFrames = Math.max(64, (int) (SAMPLE_RATE * bufferMillis / 1000));
+        line = AudioSystem.getSourceDataLine(format);
+        line.open(format, bufferFrames * BYTES_PER_FRAME);
+        // Mix half a buffer at a time so the line never runs dry while we mix
+        int chunkFrames = Math.max(32, line.getBufferSize() / BYTES_PER_FRAME / 2);
+        mixBuffer = new float[chunkFrames * CHANNELS];
+        outputBuffer = new byte[chunkFrames * BYTES_PER_FRAME];
+        line.start();
+
+        running = true;
+        thread = new Thread(this, "Sound mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        System.out.printf("Sound mixer: %d voices, %.1f ms output buffer%n",
+                voiceSample.length, getBufferLatencyMillis());
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Starts a new instance of an effect. If every voice is busy the oldest
+     * one is cut off.
+     *
+     * @param sample Id returned by {@link #load}
+     * @param gain   Linear volume, 1 for the recorded level
+     * @param pan    Stereo position from -1 (left) to 1 (right)
+     */
+    public synchronized void play(int sample, float gain, float pan) {
+        if (sample < 0 || sample >= samples.size()) {
+            return;
+        }
+        int voice = 0;
+        for (int i = 0; i < voiceSample.length; i++) {
+            if (voiceSample[i] < 0) {
+                voice = i;
+                break;
+            }
+            if (voiceStarted[i] < voiceStarted[voice]) {
+                voice = i;
+            }
+        }
+        // Constant-power pan law, so a centered sound is as loud as a panned one
+        double angle = (Math.max(-1f, Math.min(1f, pan)) + 1) * Math.PI / 4;
+        voiceSample[voice] = sample;
+        voicePosition[voice] = 0;
+        voiceGainLeft[voice] = (float) (gain * Math.cos(angle));
+        voiceGainRight[voice] = (float) (gain * Math.sin(angle));
+        voiceStarted[voice] = ++voiceCounter;
+    }
+
+    @Override
+    public void run() {
+        long reportStart = System.nanoTime();
+        double windowMax = 0;
+        while (running) {
+            int bytes = mix(outputBuffer);
+            // Blocks while the line buffer is full, which paces the thread
+            line.write(outputBuffer, 0, bytes);
+            framesWritten += bytes / BYTES_PER_FRAME;
+
+            windowMax = Math.max(windowMax, getMeasuredLatencyMillis());
+            long now = System.nanoTime();
+            if (now - reportStart >= REPORT_INTERVAL_NANOS) {
+                maxLatencyMillis = windowMax;
+                reportStart = now;
+                windowMax = 0;
+                if (reportStats) {
+                    System.out.println(latencyReport());
+                }
+            }
+        }
+        line.stop();
+        line.close();
+    }
+
+    /**
+     * Mixes the active voices into 16-bit little-endian stereo.
+     *
+     * @param output Buffer to fill completely
+     * @return Number of bytes written
+     */
+    int mix(byte[] output) {
+        float[] mixed = mixBuffer;
+        int frames = output.length / BYTES_PER_FRAME;
+        if (mixed == null || mixed.length < frames * CHANNELS) {
+            mixed = mixBuffer = new float[frames * CHANNELS];
+        }
+        Arrays.fill(mixed, 0, frames * CHANNELS, 0f);
+
+        synchronized (this) {
+            for (int voice = 0; voice < voiceSample.length; voice++) {
+                if (voiceSample[voice] < 0) {
+                    continue;
+                }
+                float[] sample = samples.get(voiceSample[voice]);
+                int position = voicePosition[voice];
+                int count = Math.min(frames, sample.length - position);
+                float left = voiceGainLeft[voice];
+                float right = voiceGainRight[voice];
+                for (int i = 0; i < count; i++) {
+                    float value = sample[position + i];
+                    mixed[2 * i] += value * left;
+                    mixed[2 * i + 1] += value * right;
+                }
+                voicePosition[voice] = position + count;
+                if (voicePosition[voice] >= sample.length) {
+                    voiceSample[voice] = -1;
+                }
+            }
+        }
+
+        for (int i = 0; i < frames * CHANNELS; i++) {
+            int value = (int) (Math.max(-1f, Math.min(1f, mixed[i])) * 32767);
+            output[2 * i] = (byte) value;
+            output[2 * i + 1] = (byte) (value >> 8);
+        }
+        return frames * BYTES_PER_FRAME;
+    }
+
+    /**
+     * @return Length of the output line buffer, the worst-case delay between
+     *         {@link #play} and the sound leaving the line
+     */
+    public double getBufferLatencyMillis() {
+        return line == null ? 0 : line.getBufferSize() / (double) BYTES_PER_FRAME / SAMPLE_RATE * 1000;
+    }
+
+    /**
+     * @return Audio currently queued in the line, measured from the frames
+     *         written and the line's playback position
+     */
+    public double getMeasuredLatencyMillis() {
+        if (line == null) {
+            return 0;
+        }
+        long queued = framesWritten - line.getLongFramePosition();
+        return Math.max(0, queued) / SAMPLE_RATE * 1000;
+    }
+
+    /**
+     * @return Most audio queued in the line over the last reporting window
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    /**
+     * @return One-line summary of the measured output latency
+     */
+    public String latencyReport() {
+        return String.format("sound mixer: %.1f ms queued (max %.1f ms), %d of %d voices active",
+                getMeasuredLatencyMillis(), maxLatencyMillis, getActiveVoices(), voiceSample.length);
+    }
+
+    public synchronized int getActiveVoices() {
+        int active = 0;
+        for (int sample : voiceSample) {
+            if (sample >= 0) {
+                active++;
+            }
+        }
+        return active;
+    }
+}
@@ -0,0 +1,292 @@
+import java.awt.*;
+import java.awt.geom.Point2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Pre-rendered sprites for the ball and both paddles.
+ * The antialiased gradient sprites are rasterized once into a single image;
+ * drawing an entity is then a plain image copy at its position. The atlas is
+ * loaded from the asset bundle or built ahead of time by {@link #preload},
+ * and rebuilt automatically if an entity of a different size is drawn or
+ * the {@link RenderQuality} changes.
+ */
+public final class SpriteAtlas {
+
+	// Transparent border around each sprite so antialiased edges are not clipped
+	private static final int MARGIN = 1;
+	// Bundle entry of the sprites pre-rendered at the default sizes
+	static final String BUNDLE_ENTRY = "sprites/atlas";
+
+	// Replaced as a whole, so a sheet built on a loader thread is seen complete
+	private static volatile Sheet sheet;
+	// Tier the sprites are drawn at; a sheet of another tier is re-rendered
+	private static volatile RenderQuality quality = RenderQuality.HIGH;
+
+	private SpriteAtlas() {
+	}
+
+	/**
+	 * Draws the ball sprite.
+	 *
+	 * @param g      Graphics context for rendering
+	 * @param x      X-coordinate of the ball
+	 * @param y      Y-coordinate of the ball
+	 * @param width  Width of the ball
+	 * @param height Height of the ball
+	 */
+	public static void drawBall(Graphics g, int x, int y, int width, int height) {
+		Sheet current = sheet;
+		RenderQuality target = quality;
+		if (current == null || width != current.ballWidth || height != current.ballHeight
+				|| current.quality != target) {
+			int paddleWidth = current == null ? 0 : current.paddleWidth;
+			int paddleHeight = current == null ? 0 : current.paddleHeight;
+			current = sheet = Sheet.render(width, height, paddleWidth, paddleHeight, target);
+		}
+		// drawOval strokes one pixel past the width and height
+		current.blit(g, current.ballCellX, x, y, width + 1, height + 1);
+	}
+
+	/**
+	 * Draws the sprite of the given paddle.
+	 *
+	 * @param g      Graphics context for rendering
+	 * @param id     Player identifier (1 for left paddle, 2 for right paddle)
+	 * @param x      X-coordinate of the paddle
+	 * @param y      Y-coordinate of the paddle
+	 * @param width  Width of the paddle
+	 * @param height Height of the paddle
+	 */
+	public static void drawPaddle(Graphics g, int id, int x, int y, int width, int height) {
+		Sheet current = sheet;
+		RenderQuality target = quality;
+		if (current == null || width != current.paddleWidth || height != current.paddleHeight
+				|| current.quality != target) {
+			int ballWidth = current == null ? 0 : current.ballWidth;
+			int ballHeight = current == null ? 0 : current.ballHeight;
+			current = sheet = Sheet.render(ballWidth, ballHeight, width, height, target);
+		}
+		current.blit(g, current.paddleCellX(id), x, y, width, height);
+	}
+
+	/**
+	 * Computes the area {@link #drawBall} covers, margin included.
+	 *
+	 * @param x      X-coordinate of the ball
+	 * @param y      Y-coordinate of the ball
+	 * @param width  Width of the ball
+	 * @param height Height of the ball
+	 * @param bounds Receives the covered area
+	 */
+	public static void ballBounds(int x, int y, int width, int height, Rectangle bounds) {
+		bounds.setBounds(x - MARGIN, y - MARGIN, width + 1 + 2 * MARGIN, height + 1 + 2 * MARGIN);
+	}
+
+	/**
+	 * Computes the area {@link #drawPaddle} covers, margin included.
+	 *
+	 * @param x      X-coordinate of the paddle
+	 * @param y      Y-coordinate of the paddle
+	 * @param width  Width of the paddle
+	 * @param height Height of the paddle
+	 * @param bounds Receives the covered area
+	 */
+	public static void paddleBounds(int x, int y, int width, int height, Rectangle bounds) {
+		bounds.setBounds(x - MARGIN, y - MARGIN, width + 2 * MARGIN, height + 2 * MARGIN);
+	}
+
+	/**
+	 * Prepares the sprites at the given sizes ahead of the first frame, from
+	 * the asset bundle if it holds them at these sizes, else by rendering them.
+	 * May be called from any thread.
+	 */
+	public static void preload(int ballSize, int paddleWidth, int paddleHeight) {
+		Sheet loaded = null;
+		RenderQuality target = quality;
+		AssetBundle bundle = AssetBundle.get();
+		// The bundle holds the sprites of the best tier
+		if (target == RenderQuality.HIGH && bundle != null
+				&& bundle.contains(BUNDLE_ENTRY, AssetBundle.TYPE_SPRITES)) {
+			loaded = Sheet.read(bundle.find(BUNDLE_ENTRY));
+		}
+		if (loaded == null || loaded.ballWidth != ballSize || loaded.ballHeight != ballSize
+				|| loaded.paddleWidth != paddleWidth || loaded.paddleHeight != paddleHeight) {
+			loaded = Sheet.render(ballSize, ballSize, paddleWidth, paddleHeight, target);
+		}
+		if (sheet == null) {
+			sheet = loaded;
+		}
+	}
+
+	/**
+	 * Changes the tier the sprites are drawn at; they are re-rendered on the
+	 * next draw, without antialiasing below {@link RenderQuality#HIGH} and in
+	 * flat colors once gradients are off.
+	 *
+	 * @param quality Tier to render the sprites for
+	 */
+	public static void setQuality(RenderQuality quality) {
+		SpriteAtlas.quality = quality;
+	}
+
+	/**
+	 * Renders the sprites and writes them in the bundle format read by
+	 * {@link #preload}.
+	 */
+	static void write(DataOutputStream out, int ballSize, int paddleWidth, int paddleHeight)
+			throws IOException {
+		Sheet.render(ballSize, ballSize, paddleWidth, paddleHeight, RenderQuality.HIGH).write(out);
+	}
+
+	/**
+	 * The sprites rendered at one set of entity sizes.
+	 */
+	private static final class Sheet {
+		final BufferedImage image;
+		final int ballWidth;
+		final int ballHeight;
+		final int paddleWidth;
+		final int paddleHeight;
+		final RenderQuality quality;
+		// Top-left corner of each cell in the image
+		final int paddleCell;
+		final int ballCellX;
+
+		private Sheet(BufferedImage image, int ballWidth, int ballHeight, int paddleWidth, int paddleHeight,
+				RenderQuality quality) {
+			this.image = image;
+			this.quality = quality;
+			this.ballWidth = ballWidth;
+			this.ballHeight = ballHeight;
+			this.paddleWidth = paddleWidth;
+			this.paddleHeight = paddleHeight;
+			paddleCell = paddleWidth + 2 * MARGIN;
+			ballCellX = 2 * paddleCell;
+		}
+
+		// Player 1 in the first cell, player 2 in the second
+		int paddleCellX(int id) {
+			return (id - 1) * paddleCell;
+		}
+
+		void blit(Graphics g, int cellX, int x, int y, int width, int height) {
+			int w = width + 2 * MARGIN;
+			int h = height + 2 * MARGIN;
+			int dx = x - MARGIN;
+			int dy = y - MARGIN;
+			g.drawImage(image, dx, dy, dx + w, dy + h, cellX, 0, cellX + w, h, null);
+		}
+
+		static Sheet render(int ballWidth, int ballHeight, int paddleWidth, int paddleHeight,
+				RenderQuality quality) {
+			int atlasWidth = 2 * (paddleWidth + 2 * MARGIN) + ballWidth + 1 + 2 * MARGIN;
+			int atlasHeight = Math.max(paddleHeight, ballHeight + 1) + 2 * MARGIN;
+			Sheet sheet = new Sheet(new BufferedImage(atlasWidth, atlasHeight, BufferedImage.TYPE_INT_ARGB_PRE),
+					ballWidth, ballHeight, paddleWidth, paddleHeight, quality);
+
+			Graphics2D g2d = sheet.image.createGraphics();
+			try {
+				if (quality.antialiasing()) {
+					g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				}
+				// A sprite whose entity has not been drawn yet has no size
+				if (paddleWidth > 0 && paddleHeight > 0) {
+					renderPaddle(g2d, 1, sheet.paddleCellX(1) + MARGIN, MARGIN, paddleWidth, paddleHeight,
+							quality.gradients());
+					renderPaddle(g2d, 2, sheet.paddleCellX(2) + MARGIN, MARGIN, paddleWidth, paddleHeight,
+							quality.gradients());
+				}
+				if (ballWidth > 0 && ballHeight > 0) {
+					renderBall(g2d, sheet.ballCellX + MARGIN, MARGIN, ballWidth, ballHeight, quality.gradients());
+				}
+			} finally {
+				g2d.dispose();
+			}
+			return sheet;
+		}
+
+		// Entity sizes, image size, then the premultiplied pixels row by row
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(ballWidth);
+			out.writeInt(ballHeight);
+			out.writeInt(paddleWidth);
+			out.writeInt(paddleHeight);
+			out.writeInt(image.getWidth());
+			out.writeInt(image.getHeight());
+			for (int pixel : ((DataBufferInt) image.getRaster().getDataBuffer()).getData()) {
+				out.writeInt(pixel);
+			}
+		}
+
+		static Sheet read(ByteBuffer data) {
+			int ballWidth = data.getInt();
+			int ballHeight = data.getInt();
+			int paddleWidth = data.getInt();
+			int paddleHeight = data.getInt();
+			int width = data.getInt();
+			int height = data.getInt();
+			if (data.remaining() != width * height * Integer.BYTES) {
+				return null;
+			}
+			BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+			data.asIntBuffer().get(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+			return new Sheet(image, ballWidth, ballHeight, paddleWidth, paddleHeight, RenderQuality.HIGH);
+		}
+	}
+
+	private static void renderBall(Graphics2D g2d, int x, int y, int ballWidth, int ballHeight, boolean gradients) {
+		if (!gradients) {
+			g2d.setColor(new Color(230, 230, 230));
+			g2d.fillOval(x, y, ballWidth, ballHeight);
+			return;
+		}
+
+		// Create a gradient for the ball
+		RadialGradientPaint gradient = new RadialGradientPaint(
+				new Point2D.Float(x + ballWidth / 2, y + ballHeight / 2),
+				ballWidth / 2,
+				new float[] { 0.0f, 1.0f },
+				new Color[] { Color.WHITE, new Color(200, 200, 200) });
+
+		g2d.setPaint(gradient);
+		g2d.fillOval(x, y, ballWidth, ballHeight);
+
+		// Add a subtle shadow
+		g2d.setColor(new Color(0, 0, 0, 50));
+		g2d.drawOval(x, y, ballWidth, ballHeight);
+	}
+
+	private static void renderPaddle(Graphics2D g2d, int id, int x, int y, int paddleWidth, int paddleHeight,
+			boolean gradients) {
+		// Create gradients for paddles
+		Color mainColor = (id == 1) ? new Color(66, 135, 245) : // Blue for player 1
+				new Color(245, 66, 66); // Red for player 2
+		if (!gradients) {
+			g2d.setColor(mainColor);
+			g2d.fillRoundRect(x, y, paddleWidth, paddleHeight, 10, 10);
+			return;
+		}
+
+		Color brightColor = (id == 1) ? new Color(100, 160, 255) : // Lighter blue
+				new Color(255, 100, 100); // Lighter red
+
+		GradientPaint gradient = new GradientPaint(
+				x, y, mainColor,
+				x + paddleWidth, y, brightColor);
+
+		g2d.setPaint(gradient);
+
+		// Draw paddle with rounded corners
+		RoundRectangle2D paddle = new RoundRectangle2D.Float(x, y, paddleWidth, paddleHeight, 10, 10);
+		g2d.fill(paddle);
+
+		// Add highlight effect
+		g2d.setColor(new Color(255, 255, 255, 50));
+		g2d.fillRoundRect(x + 2, y + 2, paddleWidth / 2 - 2, paddleHeight - 4, 8, 8);
+	}
+}
@@ -0,0 +1,225 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scrolling, twinkling star field behind the menu.
+ * Stars are kept as parallel primitive arrays rather than one object each,
+ * their twinkle is looked up in a precomputed brightness table, and they are
+ * plotted straight into the pixels of a cached image that is drawn with a
+ * single blit. Large fields are updated and plotted in parallel chunks on
+ * the common fork/join pool.
+ *
+ * The number of stars is set with {@code -Dpong.stars} (default 100).
+ */
+public final class StarField {
+
+	public static final int DEFAULT_STARS = 100;
+
+	// Stars per parallel chunk; smaller fields are handled on the calling thread
+	private static final int CHUNK_SIZE = 4096;
+	private static final int STAR_SIZE = 2;
+	// Clear the whole image rather than each star once stars cover more than this fraction of it
+	private static final int CLEAR_RATIO = 16;
+	// Brightness over half a period of |sin|, as opaque gray pixels
+	private static final int LUT_SIZE = 1024;
+	private static final int[] BRIGHTNESS = new int[LUT_SIZE];
+
+	static {
+		for (int i = 0; i < LUT_SIZE; i++) {
+			// Ensure brightness stays between 0.3 and 1.0
+			double brightness = 0.3 + 0.7 * Math.sin(Math.PI * i / LUT_SIZE);
+			int gray = (int) Math.round(brightness * 255);
+			BRIGHTNESS[i] = (gray << 16) | (gray << 8) | gray;
+		}
+	}
+
+	private final int width;
+	private final int height;
+	private final int count;
+	private final float[] x;
+	private final float[] y;
+	private final float[] speed;
+	// Table steps per millisecond of each star's twinkle, in 16.16 fixed point
+	private final int[] twinkleRate;
+	// Per-star random state, so chunks can respawn stars without sharing a Random
+	private final int[] randomState;
+	// Pixel index each star was last plotted at, -1 if none
+	private final int[] plotted;
+
+	private final BufferedImage image;
+	private final int[] pixels;
+	private final long startNanos = System.nanoTime();
+	private final Chunk[] chunks;
+	private long elapsedMillis;
+
+	public StarField(int width, int height) {
+		this(width, height, Integer.getInteger("pong.stars", DEFAULT_STARS), new Random());
+	}
+
+	/**
+	 * @param width  Width of the field in pixels
+	 * @param height Height of the field in pixels
+	 * @param count  Number of stars
+	 * @param random Source of the initial star positions
+	 */
+	public StarField(int width, int height, int count, Random random) {
+		this.width = width;
+		this.height = height;
+		this.count = count;
+		x = new float[count];
+		y = new float[count];
+		speed = new float[count];
+		twinkleRate = new int[count];
+		randomState = new int[count];
+		plotted = new int[count];
+		for (int i = 0; i < count; i++) {
+			x[i] = random.nextFloat() * width;
+			y[i] = random.nextFloat() * height;
+			speed[i] = random.nextFloat() * 2 + 1;
+			// |sin(t * 0.003 * speed)| repeats every PI / (0.003 * speed) ms
+			twinkleRate[i] = (int) (0.003 * speed[i] / Math.PI * LUT_SIZE * 65536);
+			randomState[i] = random.nextInt() | 1;
+			plotted[i] = -1;
+		}
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		chunks = new Chunk[(count + CHUNK_SIZE - 1) / CHUNK_SIZE];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = new Chunk(i * CHUNK_SIZE, Math.min(count, (i + 1) * CHUNK_SIZE));
+		}
+	}
+
+	/**
+	 * Moves every star left by its speed, respawning stars that leave the
+	 * field at the right edge.
+	 */
+	public void update() {
+		runChunks(Chunk.UPDATE);
+	}
+
+	/**
+	 * Plots the stars into the cached image and draws it, which also fills
+	 * the background black.
+	 *
+	 * @param g Graphics context for rendering
+	 */
+	public void draw(Graphics g) {
+		elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+		if (count * STAR_SIZE * STAR_SIZE > pixels.length / CLEAR_RATIO) {
+			// Dense fields: one sequential clear beats scattered erases
+			Arrays.fill(pixels, 0);
+		} else {
+			// Erase everything before plotting, so no chunk erases another chunk's stars
+			runChunks(Chunk.ERASE);
+		}
+		runChunks(Chunk.PLOT);
+		g.drawImage(image, 0, 0, null);
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	private void runChunks(int phase) {
+		for (Chunk chunk : chunks) {
+			chunk.phase = phase;
+		}
+		if (chunks.length == 1) {
+			chunks[0].run(phase);
+			return;
+		}
+		for (Chunk chunk : chunks) {
+			chunk.reinitialize();
+		}
+		ForkJoinTask.invokeAll(chunks);
+	}
+
+	private void move(int from, int to) {
+		for (int i = from; i < to; i++) {
+			x[i] -= speed[i];
+			if (x[i] < 0) {
+				x[i] = width;
+				// xorshift32
+				int r = randomState[i];
+				r ^= r << 13;
+				r ^= r >>> 17;
+				r ^= r << 5;
+				randomState[i] = r;
+				y[i] = (r >>> 8) * 0x1.0p-24f * height;
+			}
+		}
+	}
+
+	private void erase(int from, int to) {
+		for (int i = from; i < to; i++) {
+			int index = plotted[i];
+			if (index >= 0) {
+				int right = index % width + 1 < width ? 1 : 0;
+				int below = index + width < pixels.length ? width : 0;
+				pixels[index] = 0;
+				pixels[index + right] = 0;
+				pixels[index + below] = 0;
+				pixels[index + below + right] = 0;
+			}
+		}
+	}
+
+	private void plot(int from, int to) {
+		long time = elapsedMillis;
+		for (int i = from; i < to; i++) {
+			int px = (int) x[i];
+			int py = (int) y[i];
+			if (px >= width || py >= height) {
+				plotted[i] = -1;
+				continue;
+			}
+			int color = BRIGHTNESS[(int) ((time * twinkleRate[i]) >>> 16) & (LUT_SIZE - 1)];
+			int index = py * width + px;
+			// Stars on the last column or row are clipped to one pixel wide or high
+			int right = px + STAR_SIZE <= width ? 1 : 0;
+			int below = py + STAR_SIZE <= height ? width : 0;
+			pixels[index] = color;
+			pixels[index + right] = color;
+			pixels[index + below] = color;
+			pixels[index + below + right] = color;
+			plotted[i] = index;
+		}
+	}
+
+	// One range of stars; reused every frame so a frame allocates nothing
+	@SuppressWarnings("serial")
+	private final class Chunk extends RecursiveAction {
+		static final int UPDATE = 0;
+		static final int ERASE = 1;
+		static final int PLOT = 2;
+
+		private final int from;
+		private final int to;
+		int phase;
+
+		Chunk(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			run(phase);
+		}
+
+		void run(int phase) {
+			switch (phase) {
+				case UPDATE -> move(from, to);
+				case ERASE -> erase(from, to);
+				default -> plot(from, to);
+			}
+		}
+	}
+}
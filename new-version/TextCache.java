@@ -0,0 +1,186 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-rendered text for the score and the in-game overlays.
+ * Strings that never change are rasterized once into small images, and
+ * numbers are composed from cached 0-9 digit images, so drawing text on the
+ * hot path needs no string formatting, font creation or layout.
+ *
+ * Text is rendered with the default rendering hints, matching what
+ * {@code drawString} produces on the in-game back buffer.
+ */
+public final class TextCache {
+
+	// Extra pixels around each string for glyphs that overhang their advance
+	private static final int PADDING = 4;
+
+	private TextCache() {
+	}
+
+	/**
+	 * Pre-renders a fixed string.
+	 *
+	 * @param text  Text to render
+	 * @param font  Font to render it in
+	 * @param color Text color
+	 * @return The cached label
+	 */
+	public static Label label(String text, Font font, Color color) {
+		return new Label(text, font, color);
+	}
+
+	/**
+	 * Pre-renders the digits 0-9.
+	 *
+	 * @param font  Font to render them in
+	 * @param color Text color
+	 * @return The cached digits
+	 */
+	public static Digits digits(Font font, Color color) {
+		return new Digits(font, color);
+	}
+
+	/**
+	 * A string rasterized once into an image.
+	 */
+	public static final class Label {
+		private final BufferedImage image;
+		private final int width;
+		private final int ascent;
+
+		private Label(String text, Font font, Color color) {
+			FontMetrics metrics = metricsFor(font);
+			width = metrics.stringWidth(text);
+			ascent = metrics.getAscent();
+			int height = ascent + metrics.getDescent();
+
+			image = new BufferedImage(width + 2 * PADDING, height + 2 * PADDING, BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D g2d = image.createGraphics();
+			try {
+				g2d.setFont(font);
+				g2d.setColor(color);
+				g2d.drawString(text, PADDING, PADDING + ascent);
+			} finally {
+				g2d.dispose();
+			}
+		}
+
+		/**
+		 * @return Advance width of the text, as {@code FontMetrics.stringWidth}
+		 */
+		public int getWidth() {
+			return width;
+		}
+
+		/**
+		 * Draws the label like {@code drawString} would.
+		 *
+		 * @param g        Graphics context for rendering
+		 * @param x        X-coordinate of the start of the text
+		 * @param baseline Y-coordinate of the text baseline
+		 */
+		public void draw(Graphics g, int x, int baseline) {
+			g.drawImage(image, x - PADDING, baseline - ascent - PADDING, null);
+		}
+
+		// Top and height of the drawn image, relative to the baseline
+		int getImageTop() {
+			return -ascent - PADDING;
+		}
+
+		int getImageHeight() {
+			return image.getHeight();
+		}
+	}
+
+	/**
+	 * The digits 0-9 rasterized once, for drawing numbers without formatting.
+	 */
+	public static final class Digits {
+		private final Label[] digits = new Label[10];
+
+		private Digits(Font font, Color color) {
+			for (int i = 0; i < digits.length; i++) {
+				digits[i] = new Label(String.valueOf((char) ('0' + i)), font, color);
+			}
+		}
+
+		/**
+		 * Measures a number as {@link #drawNumber} would draw it.
+		 *
+		 * @param value     Non-negative number
+		 * @param minDigits Minimum number of digits, padded with zeros
+		 * @return Advance width of the number
+		 */
+		public int getWidth(int value, int minDigits) {
+			int width = 0;
+			int count = digitCount(value, minDigits);
+			for (int i = count - 1; i >= 0; i--) {
+				width += digits[digitAt(value, i)].getWidth();
+			}
+			return width;
+		}
+
+		/**
+		 * Draws a non-negative number, zero-padded to {@code minDigits} digits,
+		 * like {@code drawString(String.format("%0<minDigits>d", value))}.
+		 *
+		 * @param g         Graphics context for rendering
+		 * @param value     Non-negative number
+		 * @param minDigits Minimum number of digits, padded with zeros
+		 * @param x         X-coordinate of the start of the number
+		 * @param baseline  Y-coordinate of the text baseline
+		 */
+		public void drawNumber(Graphics g, int value, int minDigits, int x, int baseline) {
+			int count = digitCount(value, minDigits);
+			for (int i = count - 1; i >= 0; i--) {
+				Label digit = digits[digitAt(value, i)];
+				digit.draw(g, x, baseline);
+				x += digit.getWidth();
+			}
+		}
+
+		/**
+		 * Computes the area {@link #drawNumber} covers, including the padding
+		 * around the glyphs.
+		 *
+		 * @param value     Non-negative number
+		 * @param minDigits Minimum number of digits, padded with zeros
+		 * @param x         X-coordinate of the start of the number
+		 * @param baseline  Y-coordinate of the text baseline
+		 * @param bounds    Receives the covered area
+		 */
+		public void getBounds(int value, int minDigits, int x, int baseline, Rectangle bounds) {
+			Label zero = digits[0];
+			bounds.setBounds(x - PADDING, baseline + zero.getImageTop(), getWidth(value, minDigits) + 2 * PADDING,
+					zero.getImageHeight());
+		}
+
+		private static int digitCount(int value, int minDigits) {
+			int count = 1;
+			for (int rest = value / 10; rest > 0; rest /= 10) {
+				count++;
+			}
+			return Math.max(count, minDigits);
+		}
+
+		// Digit at the given position, counted from the least significant one
+		private static int digitAt(int value, int position) {
+			for (int i = 0; i < position; i++) {
+				value /= 10;
+			}
+			return value % 10;
+		}
+	}
+
+	private static FontMetrics metricsFor(Font font) {
+		BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g2d = scratch.createGraphics();
+		try {
+			return g2d.getFontMetrics(font);
+		} finally {
+			g2d.dispose();
+		}
+	}
+}
@@ -0,0 +1,224 @@
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Fixed-timestep scheduler that drives the game loop.
+ * Parks the calling thread between ticks instead of spinning, catches up
+ * after a stall with a bounded number of extra ticks, and idles while the
+ * window is minimized or unfocused.
+ *
+ * The tick rate is read from the {@code pong.tickRate} system property and
+ * must be one of {@link #SUPPORTED_RATES}. Game rules are expressed per tick
+ * at {@link #DEFAULT_RATE} and {@link PongSimulation} splits each such step
+ * over the ticks of a higher rate, so the game plays at the same speed at
+ * any rate.
+ */
+public final class TickScheduler {
+
+	/**
+	 * Callbacks invoked by the scheduler on its own thread.
+	 */
+	public interface Listener {
+		/** Advances the simulation by one fixed step. */
+		void tick();
+
+		/** Renders and presents the state produced by the last tick. */
+		void frame();
+	}
+
+	public static final int[] SUPPORTED_RATES = { 60, 120, 240 };
+	public static final int DEFAULT_RATE = 60;
+	public static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+
+	// How long to sleep between checks while the window is inactive
+	private static final long IDLE_PARK_NANOS = 50_000_000L;
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final long REPORT_INTERVAL_NANOS = 5 * NANOS_PER_SECOND;
+
+	private final int ticksPerSecond;
+	private final long tickNanos;
+	private final int maxCatchUpTicks;
+	private final boolean reportStats;
+	private volatile boolean running;
+
+	// Jitter statistics, written by the loop thread and read by anyone
+	private volatile long meanJitterNanos;
+	private volatile long maxJitterNanos;
+	private volatile long droppedTicks;
+	private long lastJitterNanos; // loop thread only
+	private long windowJitterSum;
+	private long windowJitterMax;
+	private long windowSamples;
+	private long windowStart;
+
+	/**
+	 * Creates a scheduler running at the given rate.
+	 *
+	 * @param ticksPerSecond  One of {@link #SUPPORTED_RATES}
+	 * @param maxCatchUpTicks Maximum ticks run back to back after a stall
+	 */
+	public TickScheduler(int ticksPerSecond, int maxCatchUpTicks) {
+		if (!isSupportedRate(ticksPerSecond)) {
+			throw new IllegalArgumentException("Unsupported tick rate: " + ticksPerSecond);
+		}
+		if (maxCatchUpTicks < 1) {
+			throw new IllegalArgumentException("maxCatchUpTicks must be at least 1");
+		}
+		this.ticksPerSecond = ticksPerSecond;
+		this.tickNanos = NANOS_PER_SECOND / ticksPerSecond;
+		this.maxCatchUpTicks = maxCatchUpTicks;
+		this.reportStats = Boolean.getBoolean("pong.tickStats");
+	}
+
+	/**
+	 * Creates a scheduler using the rate configured by {@code pong.tickRate}.
+	 */
+	public static TickScheduler fromSystemProperties() {
+		return new TickScheduler(configuredRate(), DEFAULT_MAX_CATCH_UP_TICKS);
+	}
+
+	private static int configuredRate() {
+		String value = System.getProperty("pong.tickRate");
+		if (value == null) {
+			return DEFAULT_RATE;
+		}
+		try {
+			int rate = Integer.parseInt(value.trim());
+			if (isSupportedRate(rate)) {
+				return rate;
+			}
+		} catch (NumberFormatException e) {
+			// fall through to the warning below
+		}
+		System.err.println("Ignoring unsupported pong.tickRate=" + value + ", using " + DEFAULT_RATE);
+		return DEFAULT_RATE;
+	}
+
+	/**
+	 * @param rate Ticks per second
+	 * @return True if the rate is one of {@link #SUPPORTED_RATES}
+	 */
+	static boolean isSupportedRate(int rate) {
+		for (int supported : SUPPORTED_RATES) {
+			if (supported == rate) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs the loop on the calling thread until {@link #stop()} is called.
+	 *
+	 * @param listener Receives tick and frame callbacks; ticks keep running
+	 *                 in every game state, so keys are still read while
+	 *                 paused
+	 * @param active   False while the window is minimized or unfocused
+	 */
+	public void run(Listener listener, BooleanSupplier active) {
+		running = true;
+		long nextTick = System.nanoTime() + tickNanos;
+		windowStart = System.nanoTime();
+
+		while (running) {
+			if (!active.getAsBoolean()) {
+				// Sleep without accumulating ticks so there is no burst on restore
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+				nextTick = System.nanoTime() + tickNanos;
+				continue;
+			}
+
+			long now = System.nanoTime();
+			long remaining = nextTick - now;
+			if (remaining > 0) {
+				LockSupport.parkNanos(remaining);
+				continue; // re-check, parkNanos may return early
+			}
+			recordJitter(now - nextTick, now);
+
+			int steps = 0;
+			while (nextTick - now <= 0 && steps < maxCatchUpTicks) {
+				listener.tick();
+				nextTick += tickNanos;
+				steps++;
+			}
+			if (nextTick - now <= 0) {
+				// Too far behind, drop the backlog instead of spiralling
+				long behind = (now - nextTick) / tickNanos + 1;
+				droppedTicks += behind;
+				nextTick = now + tickNanos;
+			}
+
+			listener.frame();
+		}
+	}
+
+	/**
+	 * Asks the loop to exit after the current iteration.
+	 */
+	public void stop() {
+		running = false;
+	}
+
+	private void recordJitter(long lateNanos, long now) {
+		lastJitterNanos = lateNanos;
+		windowJitterSum += lateNanos;
+		windowSamples++;
+		if (lateNanos > windowJitterMax) {
+			windowJitterMax = lateNanos;
+		}
+		if (now - windowStart >= REPORT_INTERVAL_NANOS) {
+			meanJitterNanos = windowJitterSum / windowSamples;
+			maxJitterNanos = windowJitterMax;
+			windowJitterSum = 0;
+			windowJitterMax = 0;
+			windowSamples = 0;
+			windowStart = now;
+			if (reportStats) {
+				System.out.println(jitterReport());
+			}
+		}
+	}
+
+	public int getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	/**
+	 * @return Average wake-up lateness over the last reporting window
+	 */
+	public long getMeanJitterNanos() {
+		return meanJitterNanos;
+	}
+
+	/**
+	 * @return Lateness of the latest wake-up; only meaningful on the loop
+	 *         thread, e.g. in {@link Listener#frame()}
+	 */
+	public long getLastJitterNanos() {
+		return lastJitterNanos;
+	}
+
+	/**
+	 * @return Worst wake-up lateness over the last reporting window
+	 */
+	public long getMaxJitterNanos() {
+		return maxJitterNanos;
+	}
+
+	/**
+	 * @return Ticks skipped because the loop fell more than the catch-up
+	 *         limit behind
+	 */
+	public long getDroppedTicks() {
+		return droppedTicks;
+	}
+
+	/**
+	 * @return One-line summary of the measured tick jitter
+	 */
+	public String jitterReport() {
+		return String.format("tick %d Hz: jitter mean %.3f ms, max %.3f ms, dropped %d",
+				ticksPerSecond, meanJitterNanos / 1e6, maxJitterNanos / 1e6, droppedTicks);
+	}
+}
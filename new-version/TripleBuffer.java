@@ -0,0 +1,79 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Three preallocated buffers handed between one writer and one reader
+ * without locks. The writer fills its buffer and publishes it, swapping it
+ * with the middle one; the reader swaps its buffer with the middle one
+ * whenever a newer buffer was published. Neither side ever waits for the
+ * other or sees a buffer the other is still using, and the reader always
+ * gets the latest complete buffer, skipping any it was too slow to take.
+ *
+ * @param <T> Type of the buffers
+ */
+public final class TripleBuffer<T> {
+
+	// Set in the middle index while it holds a buffer the reader has not taken
+	private static final int FRESH = 4;
+	private static final int INDEX = 3;
+
+	private final Object[] buffers;
+	private final AtomicInteger middle = new AtomicInteger(1);
+	private int back; // writer only
+	private int front = 2; // reader only
+
+	/**
+	 * @param first  Buffer the writer starts with
+	 * @param second Buffer in the middle
+	 * @param third  Buffer the reader starts with
+	 */
+	public TripleBuffer(T first, T second, T third) {
+		buffers = new Object[] { first, second, third };
+	}
+
+	/**
+	 * @return The buffer to fill next; writer thread only
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Hands the filled buffer to the reader and takes back an older one.
+	 * Must only be called by the writer thread.
+	 */
+	public void publish() {
+		// the atomic swap orders the writes to the buffer before the reader's swap
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/**
+	 * @return True if a buffer was published since the reader last took one
+	 */
+	public boolean hasFresh() {
+		return (middle.get() & FRESH) != 0;
+	}
+
+	/**
+	 * Takes the latest published buffer, if there is a new one. Must only be
+	 * called by the reader thread.
+	 *
+	 * @return False if nothing was published since the last call
+	 */
+	public boolean acquire() {
+		if (!hasFresh()) {
+			return false;
+		}
+		front = middle.getAndSet(front) & INDEX;
+		return true;
+	}
+
+	/**
+	 * @return The buffer taken by the last {@link #acquire()}; reader thread
+	 *         only
+	 */
+	@SuppressWarnings("unchecked")
+	public T getReadBuffer() {
+		return (T) buffers[front];
+	}
+}